@@ -2,8 +2,10 @@ package com.erliapp.utilities;
 
 import java.net.NetworkInterface;
 import java.security.SecureRandom;
-import java.time.Instant;
 import java.util.Enumeration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 /**
  * Distributed Sequence Generator.
@@ -12,39 +14,117 @@ import java.util.Enumeration;
  *
  * <p>This class should be used as a Singleton. Make sure that you create and reuse a Single
  * instance of Snowflake per node in your distributed system cluster.
+ *
+ * <p>IDs are generated without locking. The last timestamp and sequence are packed into a single
+ * word, which each call advances with compare-and-set.
+ *
+ * <p>Time comes from a {@link SnowflakeClock}, which is monotonic by default. With a drift
+ * tolerance, a clock that moves back by up to that many milliseconds doesn't stop ids being
+ * created: the last timestamp keeps being used, and may run ahead of the clock by up to the
+ * tolerance when its sequence runs out.
  */
 public class Snowflake {
 
-  private static final int UNUSED_BITS = 1; // Sign bit, Unused (always set to 0)
-  private static final int EPOCH_BITS = 41;
-  private static final int NODE_ID_BITS = 10;
-  private static final int SEQUENCE_BITS = 12;
-
-  private static final long maxNodeId = (1L << NODE_ID_BITS) - 1;
-  private static final long maxSequence = (1L << SEQUENCE_BITS) - 1;
-
   // Custom Epoch (January 1, 2015 Midnight UTC = 2015-01-01T00:00:00Z)
   private static final long DEFAULT_CUSTOM_EPOCH = 1420070400000L;
 
+  private static final int SPINS_BEFORE_PARKING = 100;
+  private static final long PARK_NANOS = 50_000L;
+
+  private final SnowflakeLayout layout;
   private final long nodeId;
   private final long customEpoch;
+  private final SnowflakeClock clock;
+  private final long maxDriftMillis;
+
+  // Taken from the layout, so generating an id only reads final fields.
+  private final int sequenceBits;
+  private final int timestampShift;
+  private final long maxSequence;
+  private final long maxTimestamp;
+  private final long shiftedNodeId;
 
-  private volatile long lastTimestamp = -1L;
-  private volatile long sequence = 0L;
+  // Last timestamp and sequence used, as (timestamp << sequenceBits) | sequence.
+  private final AtomicLong state = new AtomicLong(-1L);
 
   /**
-   * Create Snowflake with a nodeId and custom epoch.
+   * Create Snowflake with a bit layout, nodeId, custom epoch, and clock.
    *
+   * @param layout Bit layout of the ids.
    * @param nodeId ID of node creating snowflake
    * @param customEpoch A Unix Timestamp of an Epoch
+   * @param clock Source of the current time.
+   * @param maxDriftMillis How far the clock may move backwards, in milliseconds, before creating
+   *     an id fails.
+   * @throws IllegalArgumentException if the nodeId is out of range, the drift is negative, or the
+   *     current time is before the epoch or too long after it for the layout's timestamp bits.
    */
-  public Snowflake(long nodeId, long customEpoch) {
-    if (nodeId < 0 || nodeId > maxNodeId) {
+  public Snowflake(
+      SnowflakeLayout layout,
+      long nodeId,
+      long customEpoch,
+      SnowflakeClock clock,
+      long maxDriftMillis
+  ) throws IllegalArgumentException {
+    if (nodeId < 0 || nodeId > layout.getMaxNodeId()) {
       throw new IllegalArgumentException(
-          String.format("NodeId must be between %d and %d", 0, maxNodeId));
+          String.format("NodeId must be between %d and %d", 0, layout.getMaxNodeId()));
+    }
+    if (maxDriftMillis < 0) {
+      throw new IllegalArgumentException("Clock drift tolerance can't be negative!");
     }
+    this.layout = layout;
     this.nodeId = nodeId;
     this.customEpoch = customEpoch;
+    this.clock = clock;
+    this.maxDriftMillis = maxDriftMillis;
+    this.sequenceBits = layout.getSequenceBits();
+    this.timestampShift = layout.getNodeIdBits() + layout.getSequenceBits();
+    this.maxSequence = layout.getMaxSequence();
+    this.maxTimestamp = (1L << layout.getEpochBits()) - 1;
+    this.shiftedNodeId = nodeId << sequenceBits;
+
+    long now = timestamp();
+    if (now < 0 || now > maxTimestamp) {
+      throw new IllegalArgumentException(String.format(
+          "Epoch must be between %d and %d ms before now", 0, maxTimestamp));
+    }
+  }
+
+  /**
+   * Create Snowflake with a bit layout, nodeId and custom epoch.
+   *
+   * @param layout Bit layout of the ids.
+   * @param nodeId ID of node creating snowflake
+   * @param customEpoch A Unix Timestamp of an Epoch
+   */
+  public Snowflake(SnowflakeLayout layout, long nodeId, long customEpoch) {
+    this(layout, nodeId, customEpoch, SnowflakeClock.monotonic(), 0);
+  }
+
+  /**
+   * Create Snowflake with a nodeId, custom epoch, and clock.
+   *
+   * @param nodeId ID of node creating snowflake
+   * @param customEpoch A Unix Timestamp of an Epoch
+   * @param clock Source of the current time.
+   * @param maxDriftMillis How far the clock may move backwards, in milliseconds, before creating
+   *     an id fails.
+   * @throws IllegalArgumentException if the nodeId, drift or epoch is out of range.
+   */
+  public Snowflake(long nodeId, long customEpoch, SnowflakeClock clock, long maxDriftMillis)
+      throws IllegalArgumentException {
+    this(SnowflakeLayout.DEFAULT, nodeId, customEpoch, clock, maxDriftMillis);
+  }
+
+  /**
+   * Create Snowflake with a nodeId and custom epoch.
+   *
+   * @param nodeId ID of node creating snowflake
+   * @param customEpoch A Unix Timestamp of an Epoch
+   */
+  public Snowflake(long nodeId, long customEpoch) {
+    this(SnowflakeLayout.DEFAULT, nodeId, customEpoch);
   }
 
   /**
@@ -53,14 +133,12 @@ public class Snowflake {
    * @param customEpoch Custom Epoch time.
    */
   public Snowflake(long customEpoch) {
-    this.nodeId = createNodeId();
-    this.customEpoch = customEpoch;
+    this(createNodeId(SnowflakeLayout.DEFAULT), customEpoch);
   }
 
   /** Let Snowflake generate a nodeId. */
   public Snowflake() {
-    this.nodeId = createNodeId();
-    this.customEpoch = DEFAULT_CUSTOM_EPOCH;
+    this(createNodeId(SnowflakeLayout.DEFAULT), DEFAULT_CUSTOM_EPOCH);
   }
 
   /**
@@ -68,29 +146,114 @@ public class Snowflake {
    *
    * @return new Snowflake id
    */
-  public synchronized long nextId() {
-    long currentTimestamp = timestamp();
+  public long nextId() {
+    while (true) {
+      long last = state.get();
+      long next = nextState(last);
+      if (next >= 0 && state.compareAndSet(last, next)) {
+        return toId(next);
+      }
+    }
+  }
 
-    if (currentTimestamp < lastTimestamp) {
-      throw new IllegalStateException("Invalid System Clock!");
+  /**
+   * Creates many new Snowflake ids at once, see {@link #fill(long[], int, int)}.
+   *
+   * @param count Number of ids to create.
+   * @return New Snowflake ids, in increasing order.
+   * @throws IllegalArgumentException if the count is negative.
+   */
+  public long[] nextIds(int count) throws IllegalArgumentException {
+    if (count < 0) {
+      throw new IllegalArgumentException("Count can't be negative!");
     }
+    long[] out = new long[count];
+    fill(out, 0, count);
+    return out;
+  }
+
+  /**
+   * Fills part of an array with new Snowflake ids. Each step claims as much of the current
+   * millisecond's sequence as is needed in one compare-and-set, so ids within a millisecond only
+   * cost an array store. If the sequence runs out, the rest are claimed from the following
+   * milliseconds.
+   *
+   * @param dest Array to fill.
+   * @param off Index of the first id to write.
+   * @param len Number of ids to write.
+   * @throws IndexOutOfBoundsException if the range is outside of the array.
+   */
+  public void fill(long[] dest, int off, int len) throws IndexOutOfBoundsException {
+    Objects.checkFromIndexSize(off, len, dest.length);
+    int remaining = len;
+    while (remaining > 0) {
+      long last = state.get();
+      long first = nextState(last);
+      if (first < 0) {
+        continue;
+      }
 
-    if (currentTimestamp == lastTimestamp) {
-      sequence = (sequence + 1) & maxSequence;
-      if (sequence == 0) {
-        // Sequence Exhausted, wait till next millisecond.
-        currentTimestamp = waitNextMillis(currentTimestamp);
+      int claimed = (int) Math.min(remaining, maxSequence - (first & maxSequence) + 1);
+      if (state.compareAndSet(last, first + claimed - 1)) {
+        // Ids within a millisecond only differ by their sequence, in the lowest bits.
+        long id = toId(first);
+        for (int i = 0; i < claimed; i++) {
+          dest[off++] = id + i;
+        }
+        remaining -= claimed;
       }
-    } else {
+    }
+  }
+
+  /**
+   * Works out the state following the last one. The state must be read before the clock, so a
+   * newer state always means the clock moved backwards.
+   *
+   * @param last Last state.
+   * @return Next state, or {@code -1} if the sequence ran out and the caller should try again.
+   * @throws IllegalStateException if the clock moved backwards by more than the drift tolerance,
+   *     or the timestamp doesn't fit the layout's timestamp bits.
+   */
+  private long nextState(long last) throws IllegalStateException {
+    long lastTimestamp = last >> sequenceBits;
+    long currentTimestamp = timestamp();
+    if (currentTimestamp < 0 || currentTimestamp > maxTimestamp) {
+      throw new IllegalStateException("Timestamp " + currentTimestamp
+          + " is outside of the layout's range of 0 to " + maxTimestamp + "!");
+    }
+
+    if (currentTimestamp > lastTimestamp) {
       // reset sequence to start with zero for the next millisecond
-      sequence = 0;
+      return currentTimestamp << sequenceBits;
+    }
+    if (lastTimestamp - currentTimestamp > maxDriftMillis) {
+      throw new IllegalStateException("Invalid System Clock!");
+    }
+    if ((last & maxSequence) != maxSequence) {
+      return last + 1;
     }
 
-    lastTimestamp = currentTimestamp;
+    // Sequence Exhausted, move on to the next millisecond if the drift tolerance allows it.
+    if (lastTimestamp == maxTimestamp) {
+      throw new IllegalStateException("Timestamps of the layout have run out!");
+    }
+    if (lastTimestamp + 1 - currentTimestamp <= maxDriftMillis) {
+      return (lastTimestamp + 1) << sequenceBits;
+    }
+    waitNextMillis(lastTimestamp - maxDriftMillis);
+    return -1;
+  }
 
-    return currentTimestamp << (NODE_ID_BITS + SEQUENCE_BITS)
-        | (nodeId << SEQUENCE_BITS)
-        | sequence;
+  /**
+   * Builds an ID from a packed timestamp and sequence.
+   *
+   * @param packed Timestamp and sequence, as stored in the state.
+   * @return Snowflake id.
+   */
+  private long toId(long packed) {
+    return (packed >> sequenceBits) << timestampShift
+        | shiftedNodeId
+        | (packed & maxSequence);
   }
 
   /**
@@ -99,17 +262,26 @@ public class Snowflake {
    * @return Current Unix Timestamp in milliseconds.
    */
   private long timestamp() {
-    return Instant.now().toEpochMilli() - customEpoch;
+    return clock.currentTimeMillis() - customEpoch;
   }
 
   /**
-   * Block and wait till next millisecond.
+   * Wait till the clock passes a timestamp. Spins briefly, then parks between checks, so a
+   * waiting thread doesn't hold a core.
    *
-   * @param currentTimestamp Current Unix Timestamp
+   * @param lastTimestamp Timestamp to wait past.
    * @return Current Timestamp.
    */
-  private long waitNextMillis(long currentTimestamp) {
-    while (currentTimestamp == lastTimestamp) {
+  private long waitNextMillis(long lastTimestamp) {
+    int spins = 0;
+    long currentTimestamp = timestamp();
+    while (currentTimestamp <= lastTimestamp) {
+      if (spins < SPINS_BEFORE_PARKING) {
+        spins++;
+        Thread.onSpinWait();
+      } else {
+        LockSupport.parkNanos(PARK_NANOS);
+      }
       currentTimestamp = timestamp();
     }
     return currentTimestamp;
@@ -118,9 +290,10 @@ public class Snowflake {
   /**
    * Automatically generates a Node ID from server's MAC address.
    *
+   * @param layout Bit layout the Node ID must fit in.
    * @return Node ID
    */
-  private long createNodeId() {
+  private static long createNodeId(SnowflakeLayout layout) {
     long nodeId;
     try {
       StringBuilder sb = new StringBuilder();
@@ -138,7 +311,16 @@ public class Snowflake {
     } catch (Exception ex) {
       nodeId = (new SecureRandom().nextInt());
     }
-    nodeId = nodeId & maxNodeId;
+    nodeId = nodeId & layout.getMaxNodeId();
+    return nodeId;
+  }
+
+  /**
+   * Gets the Node ID written into every id.
+   *
+   * @return Node ID.
+   */
+  public long getNodeId() {
     return nodeId;
   }
 
@@ -149,16 +331,51 @@ public class Snowflake {
    * @return Array of Timestamp, Node ID, and Sequence number
    */
   public long[] parse(long id) {
-    long maskNodeId = ((1L << NODE_ID_BITS) - 1) << SEQUENCE_BITS;
-    long maskSequence = (1L << SEQUENCE_BITS) - 1;
-
-    long timestamp = (id >> (NODE_ID_BITS + SEQUENCE_BITS)) + customEpoch;
-    long nodeId = (id & maskNodeId) >> SEQUENCE_BITS;
-    long sequence = id & maskSequence;
+    long timestamp = (id >> timestampShift) + customEpoch;
+    long nodeId = (id >> sequenceBits) & layout.getMaxNodeId();
+    long sequence = id & maxSequence;
 
     return new long[] {timestamp, nodeId, sequence};
   }
 
+  /**
+   * Gets the smallest id any node could create at a time. Together with
+   * {@link #lastIdAt(long)}, this turns a time window into a range of ids, so a table keyed by
+   * Snowflake ids can be searched by time.
+   *
+   * @param timestampMillis Unix Timestamp in milliseconds.
+   * @return Smallest id with that timestamp, or {@code 0} if it is before the epoch.
+   */
+  public long firstIdAt(long timestampMillis) {
+    if (timestampMillis < customEpoch) {
+      return 0;
+    }
+    return Math.min(timestampMillis - customEpoch, maxTimestamp) << timestampShift;
+  }
+
+  /**
+   * Gets the largest id any node could create at a time, see {@link #firstIdAt(long)}.
+   *
+   * @param timestampMillis Unix Timestamp in milliseconds.
+   * @return Largest id with that timestamp, or {@code -1} if it is before the epoch.
+   */
+  public long lastIdAt(long timestampMillis) {
+    if (timestampMillis < customEpoch) {
+      return -1;
+    }
+    long timestamp = Math.min(timestampMillis - customEpoch, maxTimestamp);
+    return (timestamp << timestampShift) | ((1L << timestampShift) - 1);
+  }
+
+  /**
+   * Gets the bit layout of the ids.
+   *
+   * @return Bit layout.
+   */
+  public SnowflakeLayout getLayout() {
+    return layout;
+  }
+
   /**
    * Converts a Snowflake Object and prints it's settings to a String.
    *
@@ -167,13 +384,15 @@ public class Snowflake {
   @Override
   public String toString() {
     return "Snowflake Settings [EPOCH_BITS="
-        + EPOCH_BITS
+        + layout.getEpochBits()
         + ", NODE_ID_BITS="
-        + NODE_ID_BITS
+        + layout.getNodeIdBits()
         + ", SEQUENCE_BITS="
-        + SEQUENCE_BITS
+        + layout.getSequenceBits()
         + ", CUSTOM_EPOCH="
         + customEpoch
+        + ", MAX_DRIFT_MILLIS="
+        + maxDriftMillis
         + ", NodeId="
         + nodeId
         + "]";
@@ -0,0 +1,160 @@
+package com.erliapp.utilities;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Client of a {@link SnowflakeServer}. Ids are leased from the server in ranges, and handed out
+ * locally, so most ids cost no I/O.
+ *
+ * <p>Once a range runs low, the next one is fetched in the background, so callers rarely wait for
+ * the server. Ids are unique and increasing, but were created when their range was leased, so
+ * their timestamps may be a little older than the time they are handed out.
+ */
+public class SnowflakeClient implements AutoCloseable {
+
+  private final SocketChannel channel;
+  private final int rangeSize;
+  private final int prefetchAt;
+  private final ExecutorService fetcher;
+  private final ByteBuffer request = ByteBuffer.allocate(4);
+
+  private long[] range = new long[0];
+  private int index = 0;
+  private CompletableFuture<long[]> next;
+
+  /**
+   * Constructor. The next range is fetched once a quarter of the current one is left.
+   *
+   * @param address Address of the server.
+   * @param rangeSize Number of ids to lease at a time.
+   * @throws IOException if the server can't be reached.
+   * @throws IllegalArgumentException if the range size is out of range.
+   */
+  public SnowflakeClient(SocketAddress address, int rangeSize)
+      throws IOException, IllegalArgumentException {
+    this(address, rangeSize, rangeSize / 4);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param address Address of the server.
+   * @param rangeSize Number of ids to lease at a time.
+   * @param prefetchAt Number of ids left in a range when the next one is fetched.
+   * @throws IOException if the server can't be reached.
+   * @throws IllegalArgumentException if the range size or prefetch point is out of range.
+   */
+  public SnowflakeClient(SocketAddress address, int rangeSize, int prefetchAt)
+      throws IOException, IllegalArgumentException {
+    if (rangeSize < 1 || rangeSize > SnowflakeServer.MAX_RANGE) {
+      throw new IllegalArgumentException(
+          String.format("Range size must be between %d and %d", 1, SnowflakeServer.MAX_RANGE));
+    }
+    if (prefetchAt < 0 || prefetchAt >= rangeSize) {
+      throw new IllegalArgumentException("Prefetch point must be below the range size!");
+    }
+    this.channel = SocketChannel.open(address);
+    this.rangeSize = rangeSize;
+    this.prefetchAt = prefetchAt;
+    this.fetcher = Executors.newSingleThreadExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "snowflake-client");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Gets a new Snowflake id.
+   *
+   * @return New Snowflake id.
+   * @throws RuntimeException if a new range couldn't be leased from the server.
+   */
+  public synchronized long nextId() throws RuntimeException {
+    if (index == range.length) {
+      range = take();
+      index = 0;
+    }
+    if (next == null && range.length - index <= prefetchAt) {
+      next = CompletableFuture.supplyAsync(this::fetch, fetcher);
+    }
+    return range[index++];
+  }
+
+  /** Closes the connection to the server. Ids left in the current range are dropped. */
+  @Override
+  public synchronized void close() {
+    fetcher.shutdownNow();
+    try {
+      channel.close();
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Takes the prefetched range, or fetches one now if none was prefetched.
+   *
+   * @return Next range of ids.
+   */
+  private long[] take() {
+    if (next == null) {
+      return fetch();
+    }
+    try {
+      return next.join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException(e.getCause());
+    } finally {
+      next = null;
+    }
+  }
+
+  /**
+   * Leases a range of ids from the server. Only one fetch runs at a time, so requests and
+   * responses on the connection never interleave.
+   *
+   * @return Leased ids.
+   */
+  private long[] fetch() {
+    try {
+      request.clear().putInt(rangeSize).flip();
+      while (request.hasRemaining()) {
+        channel.write(request);
+      }
+      ByteBuffer header = readFully(ByteBuffer.allocate(4));
+      int count = header.getInt();
+      ByteBuffer body = readFully(ByteBuffer.allocate(8 * count));
+      long[] ids = new long[count];
+      body.asLongBuffer().get(ids);
+      return ids;
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Fills a buffer from the connection.
+   *
+   * @param buffer Buffer to fill.
+   * @return The same buffer, flipped for reading.
+   * @throws IOException if reading fails, or the server closed the connection.
+   */
+  private ByteBuffer readFully(ByteBuffer buffer) throws IOException {
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new EOFException("Snowflake server closed the connection");
+      }
+    }
+    return buffer.flip();
+  }
+}
@@ -0,0 +1,36 @@
+package com.erliapp.utilities;
+
+/** Source of the current time for a {@link Snowflake}. */
+@FunctionalInterface
+public interface SnowflakeClock {
+
+  /**
+   * Gets the current time.
+   *
+   * @return Current Unix Timestamp in milliseconds.
+   */
+  long currentTimeMillis();
+
+  /**
+   * Creates a clock that never moves backwards. It reads the system clock once, and measures the
+   * time since then with {@link System#nanoTime()}, so later changes to the system clock, such as
+   * NTP adjustments, don't affect it. Reading it doesn't allocate.
+   *
+   * @return New monotonic clock.
+   */
+  static SnowflakeClock monotonic() {
+    long anchorMillis = System.currentTimeMillis();
+    long anchorNanos = System.nanoTime();
+    return () -> anchorMillis + (System.nanoTime() - anchorNanos) / 1_000_000L;
+  }
+
+  /**
+   * Creates a clock that reads the system clock directly. It follows changes to the system clock,
+   * so it may move backwards.
+   *
+   * @return System clock.
+   */
+  static SnowflakeClock system() {
+    return System::currentTimeMillis;
+  }
+}
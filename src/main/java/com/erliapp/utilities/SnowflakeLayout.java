@@ -0,0 +1,115 @@
+package com.erliapp.utilities;
+
+/**
+ * Bit layout of a Snowflake id: how many bits hold the timestamp, the Node ID, and the sequence.
+ * The three must add up to 63, as the sign bit is always {@code 0}.
+ *
+ * <p>More sequence bits allow more ids per millisecond per node, at the cost of fewer nodes or a
+ * shorter lifetime. For example, 41/6/16 allows 64 nodes creating 65536 ids per millisecond each.
+ */
+public final class SnowflakeLayout {
+
+  /** Layout of 41 timestamp bits, 10 Node ID bits, and 12 sequence bits. */
+  public static final SnowflakeLayout DEFAULT = new SnowflakeLayout(41, 10, 12);
+
+  private final int epochBits;
+  private final int nodeIdBits;
+  private final int sequenceBits;
+
+  /**
+   * Constructor.
+   *
+   * @param epochBits Bits for the timestamp, in milliseconds since the epoch.
+   * @param nodeIdBits Bits for the Node ID. May be {@code 0}.
+   * @param sequenceBits Bits for the sequence within a millisecond.
+   * @throws IllegalArgumentException if a size is out of range, or they don't add up to 63.
+   */
+  public SnowflakeLayout(int epochBits, int nodeIdBits, int sequenceBits)
+      throws IllegalArgumentException {
+    if (epochBits < 1 || nodeIdBits < 0 || sequenceBits < 1) {
+      throw new IllegalArgumentException(
+          "Epoch and sequence bits must be at least 1, and Node ID bits can't be negative!");
+    }
+    if (epochBits + nodeIdBits + sequenceBits != 63) {
+      throw new IllegalArgumentException("Snowflake layout must add up to 63 bits!");
+    }
+    this.epochBits = epochBits;
+    this.nodeIdBits = nodeIdBits;
+    this.sequenceBits = sequenceBits;
+  }
+
+  /**
+   * Gets the number of bits holding the timestamp.
+   *
+   * @return Timestamp bits.
+   */
+  public int getEpochBits() {
+    return epochBits;
+  }
+
+  /**
+   * Gets the number of bits holding the Node ID.
+   *
+   * @return Node ID bits.
+   */
+  public int getNodeIdBits() {
+    return nodeIdBits;
+  }
+
+  /**
+   * Gets the number of bits holding the sequence.
+   *
+   * @return Sequence bits.
+   */
+  public int getSequenceBits() {
+    return sequenceBits;
+  }
+
+  /**
+   * Gets the largest Node ID that fits in the layout.
+   *
+   * @return Maximum Node ID.
+   */
+  public long getMaxNodeId() {
+    return (1L << nodeIdBits) - 1;
+  }
+
+  /**
+   * Gets the largest sequence number that fits in the layout.
+   *
+   * @return Maximum sequence.
+   */
+  public long getMaxSequence() {
+    return (1L << sequenceBits) - 1;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof SnowflakeLayout)) {
+      return false;
+    }
+    SnowflakeLayout other = (SnowflakeLayout) o;
+    return epochBits == other.epochBits
+        && nodeIdBits == other.nodeIdBits
+        && sequenceBits == other.sequenceBits;
+  }
+
+  @Override
+  public int hashCode() {
+    return (epochBits * 64 + nodeIdBits) * 64 + sequenceBits;
+  }
+
+  @Override
+  public String toString() {
+    return "SnowflakeLayout [EPOCH_BITS="
+        + epochBits
+        + ", NODE_ID_BITS="
+        + nodeIdBits
+        + ", SEQUENCE_BITS="
+        + sequenceBits
+        + "]";
+  }
+}
@@ -0,0 +1,252 @@
+package com.erliapp.utilities;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * Small ID service that lets many processes on one machine share a single {@link Snowflake}, so
+ * each process doesn't need its own Node ID.
+ *
+ * <p>It listens on a loopback TCP port or a Unix domain socket, and serves every connection from a
+ * single NIO selector thread. A client asks for a range of ids by sending the number it wants as
+ * a 4 byte int, and gets back the number of ids as a 4 byte int, followed by the ids as 8 byte
+ * longs, all big-endian. {@link SnowflakeClient} speaks this protocol.
+ */
+public class SnowflakeServer implements AutoCloseable {
+
+  /** Most ids a single request may ask for. */
+  public static final int MAX_RANGE = 1 << 16;
+
+  private final Snowflake snowflake;
+  private final Selector selector;
+  private final ServerSocketChannel server;
+  private final SocketAddress address;
+  private final Thread thread;
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor, which starts serving straight away.
+   *
+   * @param snowflake Generator of the ids.
+   * @param address Address to listen on, either an {@link InetSocketAddress} or a
+   *     {@link UnixDomainSocketAddress}.
+   * @throws IOException if the address can't be bound.
+   */
+  public SnowflakeServer(Snowflake snowflake, SocketAddress address) throws IOException {
+    this.snowflake = snowflake;
+    this.server = address instanceof UnixDomainSocketAddress
+        ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+        : ServerSocketChannel.open();
+    try {
+      server.bind(address);
+      server.configureBlocking(false);
+      this.selector = Selector.open();
+      server.register(selector, SelectionKey.OP_ACCEPT);
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+    this.address = server.getLocalAddress();
+    this.thread = new Thread(this::run, "snowflake-server");
+    thread.setDaemon(true);
+    thread.start();
+  }
+
+  /**
+   * Creates a server listening on a loopback TCP port.
+   *
+   * @param snowflake Generator of the ids.
+   * @param port Port to listen on, or {@code 0} for any free port.
+   * @return Running server.
+   * @throws IOException if the port can't be bound.
+   */
+  public static SnowflakeServer loopback(Snowflake snowflake, int port) throws IOException {
+    return new SnowflakeServer(
+        snowflake, new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+  }
+
+  /**
+   * Creates a server listening on a Unix domain socket. The socket file must not exist yet, and
+   * is deleted when the server is closed.
+   *
+   * @param snowflake Generator of the ids.
+   * @param path Path of the socket file.
+   * @return Running server.
+   * @throws IOException if the socket can't be bound.
+   */
+  public static SnowflakeServer unixSocket(Snowflake snowflake, Path path) throws IOException {
+    return new SnowflakeServer(snowflake, UnixDomainSocketAddress.of(path));
+  }
+
+  /**
+   * Gets the address the server is listening on, including the port picked for port {@code 0}.
+   *
+   * @return Listening address.
+   */
+  public SocketAddress getAddress() {
+    return address;
+  }
+
+  /** Stops serving, and closes every connection. */
+  @Override
+  public void close() {
+    closed = true;
+    selector.wakeup();
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /** Serves connections until the server is closed. */
+  private void run() {
+    try {
+      while (!closed) {
+        selector.select();
+        Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+        while (keys.hasNext()) {
+          SelectionKey key = keys.next();
+          keys.remove();
+          try {
+            if (key.isAcceptable()) {
+              accept();
+            } else if (key.isReadable()) {
+              read(key);
+            } else if (key.isWritable()) {
+              write(key);
+            }
+          } catch (IOException | RuntimeException e) {
+            // Only the connection that failed is dropped. A failed accept, such as running out of
+            // file descriptors, leaves the server open to accept again.
+            if (key.channel() instanceof SocketChannel) {
+              key.channel().close();
+            } else {
+              e.printStackTrace();
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    } finally {
+      shutdown();
+    }
+  }
+
+  /**
+   * Accepts a new connection.
+   *
+   * @throws IOException if the connection can't be set up.
+   */
+  private void accept() throws IOException {
+    SocketChannel channel = server.accept();
+    if (channel != null) {
+      try {
+        channel.configureBlocking(false);
+        channel.register(selector, SelectionKey.OP_READ, new Connection());
+      } catch (IOException | RuntimeException e) {
+        channel.close();
+        throw e;
+      }
+    }
+  }
+
+  /**
+   * Reads a request, and starts writing its ids once it is complete.
+   *
+   * @param key Key of the connection.
+   * @throws IOException if reading fails, or the request is invalid.
+   */
+  private void read(SelectionKey key) throws IOException {
+    SocketChannel channel = (SocketChannel) key.channel();
+    Connection connection = (Connection) key.attachment();
+    if (channel.read(connection.request) < 0) {
+      channel.close();
+      return;
+    }
+    if (connection.request.hasRemaining()) {
+      return;
+    }
+
+    int count = connection.request.flip().getInt();
+    connection.request.clear();
+    if (count < 1 || count > MAX_RANGE) {
+      throw new IOException("Invalid range size " + count);
+    }
+    long[] ids = snowflake.nextIds(count);
+    connection.response = connection.buffer(4 + 8 * count);
+    connection.response.putInt(count);
+    for (long id : ids) {
+      connection.response.putLong(id);
+    }
+    connection.response.flip();
+    key.interestOps(SelectionKey.OP_WRITE);
+    write(key);
+  }
+
+  /**
+   * Writes as much of a response as the connection takes, and goes back to reading once it has
+   * all been written.
+   *
+   * @param key Key of the connection.
+   * @throws IOException if writing fails.
+   */
+  private void write(SelectionKey key) throws IOException {
+    SocketChannel channel = (SocketChannel) key.channel();
+    Connection connection = (Connection) key.attachment();
+    channel.write(connection.response);
+    if (!connection.response.hasRemaining()) {
+      key.interestOps(SelectionKey.OP_READ);
+    }
+  }
+
+  /** Closes the selector, every connection, and the listening socket. */
+  private void shutdown() {
+    try {
+      for (SelectionKey key : selector.keys()) {
+        key.channel().close();
+      }
+      selector.close();
+      server.close();
+      if (address instanceof UnixDomainSocketAddress) {
+        Files.deleteIfExists(((UnixDomainSocketAddress) address).getPath());
+      }
+    } catch (IOException e) {
+      e.printStackTrace();
+    }
+  }
+
+  /** State of a single client connection. */
+  private static class Connection {
+
+    private final ByteBuffer request = ByteBuffer.allocate(4);
+    private ByteBuffer response;
+
+    /**
+     * Gets an empty buffer for a response, reusing the last one if it is large enough.
+     *
+     * @param size Size of the response in bytes.
+     * @return Cleared buffer, limited to the size.
+     */
+    private ByteBuffer buffer(int size) {
+      if (response == null || response.capacity() < size) {
+        return ByteBuffer.allocate(size);
+      }
+      response.clear().limit(size);
+      return response;
+    }
+  }
+}
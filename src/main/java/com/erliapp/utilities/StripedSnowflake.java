@@ -0,0 +1,236 @@
+package com.erliapp.utilities;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Set of Snowflake generators for a single node, so threads don't share one generator.
+ *
+ * <p>The low bits of the Node ID are used as a stripe index, and every stripe has its own
+ * {@link Snowflake}. With {@code stripeBits} stripe bits, a node can use the rest of the layout's
+ * Node ID bits for its own ID, and can create up to {@code 2^stripeBits} times as many ids per
+ * millisecond.
+ * Each thread is given one stripe, round robin, the first time it asks for an id.
+ *
+ * <p>The Node IDs of every stripe are reserved while this is open, so creating another
+ * StripedSnowflake with overlapping IDs, the same layout, and the same epoch in this JVM fails.
+ * Plain {@link Snowflake} instances don't reserve their Node ID, so they are not checked against
+ * the stripes, and must not use any of their Node IDs. Node IDs still need to be unique between
+ * machines.
+ */
+public class StripedSnowflake implements AutoCloseable {
+
+  /** Most stripe bits allowed, which is 1024 stripes. */
+  public static final int MAX_STRIPE_BITS = 10;
+
+  private static final Set<String> reserved = ConcurrentHashMap.newKeySet();
+
+  private final SnowflakeLayout layout;
+  private final long nodeId;
+  private final int stripeBits;
+  private final long customEpoch;
+  private final Snowflake[] stripes;
+  private final AtomicInteger nextStripe = new AtomicInteger();
+  private final ThreadLocal<Snowflake> local;
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor.
+   *
+   * @param nodeId ID of node creating snowflakes, using {@code 10 - stripeBits} bits.
+   * @param stripeBits Number of Node ID bits used for the stripe index, at most {@link
+   *     #MAX_STRIPE_BITS}.
+   * @param customEpoch A Unix Timestamp of an Epoch
+   * @throws IllegalArgumentException if the stripe bits or Node ID are out of range.
+   * @throws IllegalStateException if a stripe's Node ID is already in use in this JVM.
+   */
+  public StripedSnowflake(long nodeId, int stripeBits, long customEpoch)
+      throws IllegalArgumentException, IllegalStateException {
+    this(SnowflakeLayout.DEFAULT, nodeId, stripeBits, customEpoch, SnowflakeClock.monotonic(), 0);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param layout Bit layout of the ids.
+   * @param nodeId ID of node creating snowflakes, using the Node ID bits not used for stripes.
+   * @param stripeBits Number of Node ID bits used for the stripe index, at most {@link
+   *     #MAX_STRIPE_BITS}.
+   * @param customEpoch A Unix Timestamp of an Epoch
+   * @param clock Source of the current time, shared by every stripe.
+   * @param maxDriftMillis How far the clock may move backwards, in milliseconds, before creating
+   *     an id fails.
+   * @throws IllegalArgumentException if the stripe bits, Node ID or epoch are out of range.
+   * @throws IllegalStateException if a stripe's Node ID is already in use in this JVM.
+   */
+  public StripedSnowflake(
+      SnowflakeLayout layout,
+      long nodeId,
+      int stripeBits,
+      long customEpoch,
+      SnowflakeClock clock,
+      long maxDriftMillis
+  ) throws IllegalArgumentException, IllegalStateException {
+    int maxStripeBits = Math.min(MAX_STRIPE_BITS, layout.getNodeIdBits());
+    if (stripeBits < 0 || stripeBits > maxStripeBits) {
+      throw new IllegalArgumentException(
+          String.format("Stripe bits must be between %d and %d", 0, maxStripeBits));
+    }
+    long maxNodeId = (1L << (layout.getNodeIdBits() - stripeBits)) - 1;
+    if (nodeId < 0 || nodeId > maxNodeId) {
+      throw new IllegalArgumentException(
+          String.format("NodeId must be between %d and %d", 0, maxNodeId));
+    }
+    this.layout = layout;
+    this.nodeId = nodeId;
+    this.stripeBits = stripeBits;
+    this.customEpoch = customEpoch;
+    this.stripes = new Snowflake[1 << stripeBits];
+
+    List<String> claimed = new ArrayList<>();
+    for (int i = 0; i < stripes.length; i++) {
+      long stripeNodeId = (nodeId << stripeBits) | i;
+      String key = reservation(stripeNodeId);
+      if (!reserved.add(key)) {
+        reserved.removeAll(claimed);
+        throw new IllegalStateException("NodeId " + stripeNodeId + " is already in use!");
+      }
+      claimed.add(key);
+      try {
+        stripes[i] = new Snowflake(layout, stripeNodeId, customEpoch, clock, maxDriftMillis);
+      } catch (IllegalArgumentException e) {
+        reserved.removeAll(claimed);
+        throw e;
+      }
+    }
+    this.local = ThreadLocal.withInitial(
+        () -> stripes[nextStripe.getAndIncrement() & (stripes.length - 1)]);
+  }
+
+  /**
+   * Creates a new Snowflake id, using the calling thread's stripe.
+   *
+   * @return new Snowflake id
+   * @throws IllegalStateException if this has been closed.
+   */
+  public long nextId() throws IllegalStateException {
+    return current().nextId();
+  }
+
+  /**
+   * Creates many new Snowflake ids at once, using the calling thread's stripe.
+   *
+   * @param count Number of ids to create.
+   * @return New Snowflake ids, in increasing order.
+   * @throws IllegalStateException if this has been closed.
+   */
+  public long[] nextIds(int count) throws IllegalStateException {
+    return current().nextIds(count);
+  }
+
+  /**
+   * Gets the generator of the calling thread's stripe.
+   *
+   * @return Snowflake generator.
+   * @throws IllegalStateException if this has been closed.
+   */
+  public Snowflake current() throws IllegalStateException {
+    if (closed) {
+      throw new IllegalStateException("StripedSnowflake is closed!");
+    }
+    return local.get();
+  }
+
+  /**
+   * Gets the generator of a stripe.
+   *
+   * @param stripe Index of the stripe.
+   * @return Snowflake generator.
+   */
+  public Snowflake getStripe(int stripe) {
+    return stripes[stripe];
+  }
+
+  /**
+   * Gets the number of stripes.
+   *
+   * @return Stripe count.
+   */
+  public int getStripeCount() {
+    return stripes.length;
+  }
+
+  /**
+   * Parses a Snowflake ID into its different components.
+   *
+   * @param id Snowflake ID.
+   * @return Array of Timestamp, Node ID, Stripe, and Sequence number
+   */
+  public long[] parse(long id) {
+    long[] parts = stripes[0].parse(id);
+    long stripeMask = (1L << stripeBits) - 1;
+    return new long[] {parts[0], parts[1] >> stripeBits, parts[1] & stripeMask, parts[2]};
+  }
+
+  /**
+   * Gets the smallest id any node could create at a time, see {@link Snowflake#firstIdAt(long)}.
+   *
+   * @param timestampMillis Unix Timestamp in milliseconds.
+   * @return Smallest id with that timestamp.
+   */
+  public long firstIdAt(long timestampMillis) {
+    return stripes[0].firstIdAt(timestampMillis);
+  }
+
+  /**
+   * Gets the largest id any node could create at a time, see {@link Snowflake#lastIdAt(long)}.
+   *
+   * @param timestampMillis Unix Timestamp in milliseconds.
+   * @return Largest id with that timestamp.
+   */
+  public long lastIdAt(long timestampMillis) {
+    return stripes[0].lastIdAt(timestampMillis);
+  }
+
+  /** Releases the Node IDs of every stripe, so they can be used again. */
+  @Override
+  public void close() {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    for (Snowflake stripe : stripes) {
+      reserved.remove(reservation(stripe.getNodeId()));
+    }
+  }
+
+  /**
+   * Gets the key a Node ID is reserved under.
+   *
+   * @param stripeNodeId Full Node ID of a stripe.
+   * @return Reservation key.
+   */
+  private String reservation(long stripeNodeId) {
+    return layout + ":" + customEpoch + ":" + stripeNodeId;
+  }
+
+  @Override
+  public String toString() {
+    return "StripedSnowflake Settings [EPOCH_BITS="
+        + layout.getEpochBits()
+        + ", NODE_ID_BITS="
+        + layout.getNodeIdBits()
+        + ", SEQUENCE_BITS="
+        + layout.getSequenceBits()
+        + ", NodeId="
+        + nodeId
+        + ", STRIPE_BITS="
+        + stripeBits
+        + ", CUSTOM_EPOCH="
+        + customEpoch
+        + "]";
+  }
+}
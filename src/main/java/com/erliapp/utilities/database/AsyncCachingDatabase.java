@@ -0,0 +1,81 @@
+package com.erliapp.utilities.database;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Caches the results of selections in front of an {@link AsyncDatabase}, and keeps its
+ * asynchronous API. A selection found in the cache completes straight away, and anything else
+ * runs on the wrapped database's own asynchronous API, such as the Cassandra driver's.
+ */
+public class AsyncCachingDatabase extends CachingDatabase implements AsyncDatabase {
+
+  private final AsyncDatabase database;
+
+  /**
+   * Constructor.
+   *
+   * @param database Database to cache selections of.
+   * @param tables Names of every table in the database.
+   * @param prop Database Configuration, used for the cache settings.
+   * @throws IllegalArgumentException if a cache limit is less than one.
+   */
+  public AsyncCachingDatabase(
+      AsyncDatabase database, Collection<String> tables, PropertiesEx prop)
+      throws IllegalArgumentException {
+    super(database, tables, prop);
+    this.database = database;
+  }
+
+  /**
+   * Makes a database selection without blocking, using a cached result if there is one.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return Future of a copy of the DatabaseSelection Data.
+   */
+  @Override
+  public CompletableFuture<DatabaseSelection> selectAsync(
+      String[] selecting, String database, String where) {
+    StatementKey key = new StatementKey(StatementKey.Kind.SELECT, database, selecting, where);
+    DatabaseSelection hit = lookup(key);
+    if (hit != null) {
+      return CompletableFuture.completedFuture(hit);
+    }
+    long generation = generation(database);
+
+    long start = System.nanoTime();
+    return this.database.selectAsync(selecting, database, where).thenApply(loaded -> {
+      store(key, database, loaded, generation, start);
+      return copy(loaded);
+    });
+  }
+
+  /**
+   * Runs a blank query without blocking, then removes the cached results of every table it names.
+   *
+   * @param query Query to run.
+   * @return Future completed once the query has run, and the cache has been invalidated.
+   */
+  @Override
+  public CompletableFuture<Void> updateAsync(String query) {
+    return database.updateAsync(query).whenComplete((done, e) -> invalidateTablesIn(query));
+  }
+
+  /**
+   * Runs an INSERT statement without blocking, then removes the cached results of its table.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param values Values being inserted.
+   * @return Future completed once the row has been inserted, and the cache has been invalidated.
+   */
+  @Override
+  public CompletableFuture<Void> insertAsync(
+      String database, String[] inserting, Object... values) {
+    return this.database.insertAsync(database, inserting, values)
+        .whenComplete((done, e) -> invalidate(database));
+  }
+}
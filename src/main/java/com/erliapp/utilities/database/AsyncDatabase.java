@@ -0,0 +1,40 @@
+package com.erliapp.utilities.database;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Database that can also run queries without blocking the calling thread. Each asynchronous method
+ * returns straight away, and completes its future once the query has finished. If the query
+ * fails, the future completes exceptionally.
+ */
+public interface AsyncDatabase extends Database {
+
+  /**
+   * Makes a database selection, without blocking.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return Future of the DatabaseSelection Data.
+   */
+  CompletableFuture<DatabaseSelection> selectAsync(
+      String[] selecting, String database, String where);
+
+  /**
+   * Runs a blank query, without blocking.
+   *
+   * @param query Query to run.
+   * @return Future completed once the query has run.
+   */
+  CompletableFuture<Void> updateAsync(String query);
+
+  /**
+   * Runs an INSERT statement, without blocking.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param values Values being inserted.
+   * @return Future completed once the row has been inserted.
+   */
+  CompletableFuture<Void> insertAsync(String database, String[] inserting, Object... values);
+}
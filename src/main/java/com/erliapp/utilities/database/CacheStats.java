@@ -0,0 +1,145 @@
+package com.erliapp.utilities.database;
+
+/** Snapshot of a result cache's state and counters. */
+public class CacheStats {
+
+  private final int entries;
+  private final long bytes;
+  private final long hits;
+  private final long misses;
+  private final long evictions;
+  private final long invalidations;
+  private final long totalLoadNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param entries Results currently cached.
+   * @param bytes Estimated size of the cached results, in bytes.
+   * @param hits Number of selections served from the cache.
+   * @param misses Number of selections that had to be loaded from the database.
+   * @param evictions Number of results removed to stay within the cache's bounds.
+   * @param invalidations Number of results removed because their table changed.
+   * @param totalLoadNanos Total time spent loading missed selections, in nanoseconds.
+   */
+  public CacheStats(
+      int entries,
+      long bytes,
+      long hits,
+      long misses,
+      long evictions,
+      long invalidations,
+      long totalLoadNanos
+  ) {
+    this.entries = entries;
+    this.bytes = bytes;
+    this.hits = hits;
+    this.misses = misses;
+    this.evictions = evictions;
+    this.invalidations = invalidations;
+    this.totalLoadNanos = totalLoadNanos;
+  }
+
+  /**
+   * Gets the number of results currently cached.
+   *
+   * @return Cached entries.
+   */
+  public int getEntries() {
+    return entries;
+  }
+
+  /**
+   * Gets the estimated size of every cached result.
+   *
+   * @return Size in bytes.
+   */
+  public long getBytes() {
+    return bytes;
+  }
+
+  /**
+   * Gets the number of selections served from the cache.
+   *
+   * @return Cache hits.
+   */
+  public long getHits() {
+    return hits;
+  }
+
+  /**
+   * Gets the number of selections that had to be loaded from the database.
+   *
+   * @return Cache misses.
+   */
+  public long getMisses() {
+    return misses;
+  }
+
+  /**
+   * Gets the share of selections served from the cache.
+   *
+   * @return Hit ratio between {@code 0} and {@code 1}, or {@code 0} if nothing was selected yet.
+   */
+  public double getHitRatio() {
+    long total = hits + misses;
+    return total == 0 ? 0 : (double) hits / total;
+  }
+
+  /**
+   * Gets the number of results removed to stay within the cache's entry and byte limits.
+   *
+   * @return Evictions.
+   */
+  public long getEvictions() {
+    return evictions;
+  }
+
+  /**
+   * Gets the number of results removed because an insert or update changed their table.
+   *
+   * @return Invalidations.
+   */
+  public long getInvalidations() {
+    return invalidations;
+  }
+
+  /**
+   * Gets the total time spent loading selections that weren't cached.
+   *
+   * @return Load time in nanoseconds.
+   */
+  public long getTotalLoadNanos() {
+    return totalLoadNanos;
+  }
+
+  /**
+   * Gets the average time spent loading a selection that wasn't cached.
+   *
+   * @return Average load time in nanoseconds, or {@code 0} if nothing was loaded yet.
+   */
+  public long getAverageLoadNanos() {
+    return misses == 0 ? 0 : totalLoadNanos / misses;
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStats [entries="
+        + entries
+        + ", bytes="
+        + bytes
+        + ", hits="
+        + hits
+        + ", misses="
+        + misses
+        + ", hitRatio="
+        + getHitRatio()
+        + ", evictions="
+        + evictions
+        + ", invalidations="
+        + invalidations
+        + ", averageLoadNanos="
+        + getAverageLoadNanos()
+        + "]";
+  }
+}
@@ -0,0 +1,486 @@
+package com.erliapp.utilities.database;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Caches the results of {@link #select(String[], String, String)} in front of another Database.
+ * Results are kept per table, columns and WHERE statement, and the least recently used results are
+ * evicted once the cache holds too many entries or too many estimated bytes. Each result expires
+ * after its table's time to live.
+ *
+ * <p>Inserting into a table, or running an update that names it, removes every cached result of
+ * that table. An update that doesn't name any known table clears the whole cache. Changes made to
+ * the database from elsewhere are only seen once the cached results expire.
+ *
+ * <p>Streamed and columnar selections are not cached.
+ */
+public class CachingDatabase implements Database {
+
+  /** A cached result. */
+  private static class Entry {
+    final DatabaseSelection selection;
+    final long bytes;
+    final long expires;
+
+    Entry(DatabaseSelection selection, long bytes, long expires) {
+      this.selection = selection;
+      this.bytes = bytes;
+      this.expires = expires;
+    }
+  }
+
+  private final Database database;
+  private final Set<String> tables;
+  private final int maxEntries;
+  private final long maxBytes;
+  private final long defaultTtl;
+  private final Map<String, Long> tableTtls = new HashMap<>();
+
+  private final Object lock = new Object();
+  private final LinkedHashMap<StatementKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+  // Keys of every cached entry, by lowercase table, so invalidating a table skips the others.
+  private final Map<String, Set<StatementKey>> keysByTable = new HashMap<>();
+  private final Map<String, Long> generations = new HashMap<>();
+  private long bytes = 0;
+  private long hits = 0;
+  private long misses = 0;
+  private long evictions = 0;
+  private long invalidations = 0;
+  private long totalLoadNanos = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param database Database to cache selections of.
+   * @param tables Names of every table in the database.
+   * @param prop Database Configuration, used for the cache settings.
+   * @throws IllegalArgumentException if a cache limit is less than one.
+   */
+  public CachingDatabase(Database database, Collection<String> tables, PropertiesEx prop)
+      throws IllegalArgumentException {
+    this.database = database;
+    this.tables = new HashSet<>();
+    for (String table : tables) {
+      this.tables.add(table.toLowerCase());
+    }
+    this.maxEntries = Integer.parseInt(prop.getProperty("cacheMaxEntries", "10000"));
+    this.maxBytes = Long.parseLong(prop.getProperty("cacheMaxBytes", "" + (64L << 20)));
+    if (maxEntries < 1 || maxBytes < 1) {
+      throw new IllegalArgumentException("Cache limits must be at least 1!");
+    }
+    this.defaultTtl = TimeUnit.MILLISECONDS.toNanos(
+        Long.parseLong(prop.getProperty("cacheTtl", "60000")));
+    for (String table : tables) {
+      String ttl = prop.getProperty("cacheTtl." + table);
+      if (ttl != null) {
+        tableTtls.put(table, TimeUnit.MILLISECONDS.toNanos(Long.parseLong(ttl)));
+      }
+    }
+
+    // Writes committed later, such as write-behind inserts, may land after a select cached the
+    // table, so the table is invalidated again once they are committed.
+    database.addCommitListener(this::invalidate);
+  }
+
+  /**
+   * Makes a database selection, using a cached result if there is one. The returned selection is
+   * a copy, so changing it doesn't change the cache.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return DatabaseSelection Data.
+   */
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, String where) {
+    StatementKey key = new StatementKey(StatementKey.Kind.SELECT, database, selecting, where);
+    return cached(key, database, () -> this.database.select(selecting, database, where));
+  }
+
+  /**
+   * Makes a database selection with bound values, using a cached result if there is one. Results
+   * are cached by the condition's values, not just its shape.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param condition Typed WHERE statement.
+   * @return DatabaseSelection Data.
+   */
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    StatementKey key = new StatementKey(
+        StatementKey.Kind.SELECT_BOUND, database, selecting, condition.toWhere());
+    return cached(key, database, () -> this.database.select(selecting, database, condition));
+  }
+
+  /**
+   * Gets a cached result, or loads and caches it.
+   *
+   * @param key Statement of the selection.
+   * @param database Table selected from.
+   * @param load Runs the selection on the wrapped database.
+   * @return Copy of the result.
+   */
+  private DatabaseSelection cached(
+      StatementKey key, String database, Supplier<DatabaseSelection> load) {
+    DatabaseSelection hit = lookup(key);
+    if (hit != null) {
+      return hit;
+    }
+    long generation = generation(database);
+
+    long start = System.nanoTime();
+    DatabaseSelection loaded = load.get();
+    store(key, database, loaded, generation, start);
+    return copy(loaded);
+  }
+
+  /**
+   * Gets a cached result, counting a hit or a miss. Expired results are removed.
+   *
+   * @param key Statement of the selection.
+   * @return Copy of the result, or {@code null} if it isn't cached.
+   */
+  DatabaseSelection lookup(StatementKey key) {
+    synchronized (lock) {
+      Entry entry = entries.get(key);
+      if (entry != null) {
+        if (entry.expires - System.nanoTime() > 0) {
+          hits++;
+          return copy(entry.selection);
+        }
+        remove(key, entry);
+      }
+      misses++;
+      return null;
+    }
+  }
+
+  /**
+   * Gets how many times a table has been invalidated. Read before loading a result, and checked
+   * again when storing it.
+   *
+   * @param database Table to check.
+   * @return Generation of the table.
+   */
+  long generation(String database) {
+    synchronized (lock) {
+      return generations.getOrDefault(database.toLowerCase(), 0L);
+    }
+  }
+
+  /**
+   * Caches a loaded result, unless its table changed while it was loading.
+   *
+   * @param key Statement of the selection.
+   * @param database Table selected from.
+   * @param loaded Result of the selection.
+   * @param generation Generation of the table before loading.
+   * @param start When loading started, from {@link System#nanoTime()}.
+   */
+  void store(
+      StatementKey key, String database, DatabaseSelection loaded, long generation, long start) {
+    long end = System.nanoTime();
+    long ttl = tableTtls.getOrDefault(database, defaultTtl);
+    long size = estimateBytes(loaded);
+    synchronized (lock) {
+      totalLoadNanos += end - start;
+      // Skip caching if the table changed while loading, or the result could never fit.
+      if (ttl > 0
+          && size <= maxBytes
+          && generations.getOrDefault(database.toLowerCase(), 0L) == generation) {
+        StatementKey stored = key.copy();
+        Entry old = entries.put(stored, new Entry(loaded, size, end + ttl));
+        if (old != null) {
+          bytes -= old.bytes;
+        }
+        bytes += size;
+        keysByTable.computeIfAbsent(database.toLowerCase(), table -> new HashSet<>()).add(stored);
+        evict();
+      }
+    }
+  }
+
+  @Override
+  public Stream<Map<String, Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    return this.database.selectStream(selecting, database, where);
+  }
+
+  /**
+   * Selects a page of rows whose id lies in a range. Pages aren't cached, since a scan reads each
+   * one once, and caching them would only push out results that are read again.
+   */
+  @Override
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize) {
+    return this.database.selectRange(selecting, database, idColumn, fromId, toId, pageSize);
+  }
+
+  @Override
+  public ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+    return this.database.selectColumnar(selecting, database, where);
+  }
+
+  /**
+   * Runs a blank query, then removes the cached results of every table it names. If it doesn't
+   * name any known table, the whole cache is cleared.
+   *
+   * @param query Query to run.
+   */
+  @Override
+  public void update(String query) {
+    try {
+      database.update(query);
+    } finally {
+      invalidateTablesIn(query);
+    }
+  }
+
+  @Override
+  public boolean tryUpdate(String query) {
+    try {
+      return database.tryUpdate(query);
+    } finally {
+      invalidateTablesIn(query);
+    }
+  }
+
+  /**
+   * Drops the cached results of every table a query names, or the whole cache if it names none.
+   *
+   * @param query Query that ran.
+   */
+  void invalidateTablesIn(String query) {
+    Set<String> touched = tablesIn(query);
+    if (touched.isEmpty()) {
+      invalidateAll();
+    } else {
+      for (String table : touched) {
+        invalidate(table);
+      }
+    }
+  }
+
+  @Override
+  public void insert(String database, String[] inserting, Object... values) {
+    try {
+      this.database.insert(database, inserting, values);
+    } finally {
+      invalidate(database);
+    }
+  }
+
+  @Override
+  public boolean insertIfAbsent(String database, String[] inserting, Object... values) {
+    try {
+      return this.database.insertIfAbsent(database, inserting, values);
+    } finally {
+      invalidate(database);
+    }
+  }
+
+  @Override
+  public int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize) {
+    try {
+      return this.database.insertBatch(database, inserting, rows, batchSize);
+    } finally {
+      invalidate(database);
+    }
+  }
+
+  @Override
+  public int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows) {
+    try {
+      return this.database.insertBatch(database, inserting, rows);
+    } finally {
+      invalidate(database);
+    }
+  }
+
+  /**
+   * Removes every cached result of a table.
+   *
+   * @param table Table that changed.
+   */
+  public void invalidate(String table) {
+    String name = table.toLowerCase();
+    synchronized (lock) {
+      generations.merge(name, 1L, Long::sum);
+      Set<StatementKey> keys = keysByTable.remove(name);
+      if (keys == null) {
+        return;
+      }
+      for (StatementKey key : keys) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+          bytes -= entry.bytes;
+          invalidations++;
+        }
+      }
+    }
+  }
+
+  /** Removes every cached result. */
+  public void invalidateAll() {
+    synchronized (lock) {
+      for (String table : tables) {
+        generations.merge(table, 1L, Long::sum);
+      }
+      invalidations += entries.size();
+      entries.clear();
+      keysByTable.clear();
+      bytes = 0;
+    }
+  }
+
+  /**
+   * Gets the state of the cache.
+   *
+   * @return Cache statistics.
+   */
+  public CacheStats getCacheStats() {
+    synchronized (lock) {
+      return new CacheStats(
+          entries.size(), bytes, hits, misses, evictions, invalidations, totalLoadNanos);
+    }
+  }
+
+  /**
+   * Gets the Database selections are cached from.
+   *
+   * @return Wrapped Database.
+   */
+  public Database getDatabase() {
+    return database;
+  }
+
+  @Override
+  public void addCommitListener(Consumer<String> listener) {
+    database.addCommitListener(listener);
+  }
+
+  @Override
+  public boolean isCql() {
+    return database.isCql();
+  }
+
+  @Override
+  public PoolStats getPoolStats() {
+    return database.getPoolStats();
+  }
+
+  /** Clears the cache, and closes the wrapped Database. */
+  @Override
+  public void close() {
+    synchronized (lock) {
+      entries.clear();
+      keysByTable.clear();
+      bytes = 0;
+    }
+    database.close();
+  }
+
+  /**
+   * Removes an entry. Must hold the lock.
+   *
+   * @param key Key of the entry.
+   * @param entry Entry to remove.
+   */
+  private void remove(StatementKey key, Entry entry) {
+    entries.remove(key);
+    bytes -= entry.bytes;
+    unindex(key);
+  }
+
+  /** Evicts least recently used entries until the cache is within its bounds. Must hold the lock. */
+  private void evict() {
+    Iterator<Map.Entry<StatementKey, Entry>> it = entries.entrySet().iterator();
+    while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+      Map.Entry<StatementKey, Entry> eldest = it.next();
+      it.remove();
+      bytes -= eldest.getValue().bytes;
+      unindex(eldest.getKey());
+      evictions++;
+    }
+  }
+
+  /**
+   * Removes a key from its table's keys. Must hold the lock.
+   *
+   * @param key Key of a removed entry.
+   */
+  private void unindex(StatementKey key) {
+    String table = key.getTable().toLowerCase();
+    Set<StatementKey> keys = keysByTable.get(table);
+    if (keys != null && keys.remove(key) && keys.isEmpty()) {
+      keysByTable.remove(table);
+    }
+  }
+
+  /**
+   * Finds the known tables named in a query.
+   *
+   * @param query Query to search.
+   * @return Lowercase names of the tables found.
+   */
+  private Set<String> tablesIn(String query) {
+    Set<String> out = new HashSet<>();
+    for (String word : query.toLowerCase().split("[^a-z0-9_]+")) {
+      if (tables.contains(word)) {
+        out.add(word);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Copies a selection, so callers can't change a cached result. Rows themselves can't be
+   * changed, so they are shared.
+   *
+   * @param selection Selection to copy.
+   * @return Copy of the selection.
+   */
+  static DatabaseSelection copy(DatabaseSelection selection) {
+    DatabaseSelection out = new DatabaseSelection();
+    for (Map<String, Row<?>> row : selection.getData()) {
+      out.addRow(new LinkedHashMap<>(row));
+    }
+    return out;
+  }
+
+  /**
+   * Roughly estimates how much memory a selection uses.
+   *
+   * @param selection Selection to measure.
+   * @return Estimated size in bytes.
+   */
+  private static long estimateBytes(DatabaseSelection selection) {
+    long out = 64;
+    for (Map<String, Row<?>> row : selection.getData()) {
+      // The map itself, and an entry per column.
+      out += 64 + 40L * row.size();
+      for (Row<?> value : row.values()) {
+        out += 24;
+        if (value != null && value.getTypeCode() == Row.Type.STRING && value.getItem() != null) {
+          out += 40 + 2L * value.getString().length();
+        } else if (value != null && value.getTypeCode() == Row.Type.UUID) {
+          out += 32;
+        }
+      }
+    }
+    return out;
+  }
+}
@@ -1,23 +1,44 @@
 package com.erliapp.utilities.database;
 
 import com.datastax.oss.driver.api.core.CqlSession;
+import com.datastax.oss.driver.api.core.cql.AsyncResultSet;
+import com.datastax.oss.driver.api.core.cql.BatchStatement;
+import com.datastax.oss.driver.api.core.cql.BatchType;
+import com.datastax.oss.driver.api.core.cql.BatchableStatement;
 import com.datastax.oss.driver.api.core.cql.BoundStatement;
 import com.datastax.oss.driver.api.core.cql.PreparedStatement;
 import com.datastax.oss.driver.api.core.cql.ResultSet;
 import com.datastax.oss.driver.api.core.cql.Row;
+import com.datastax.oss.driver.api.core.cql.SimpleStatement;
 import com.erliapp.utilities.PropertiesEx;
 import com.erliapp.utilities.Util;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /** Cassandra Database instance. Connects to a Cassandra Database to get information. */
-public class CassandraDatabase implements Database {
+public class CassandraDatabase implements AsyncDatabase {
 
   private final LinkedHashMap<String, LinkedHashMap<String, String>> databases;
+  private final Map<String, TableSchema> schemas;
+  private final LinkedHashMap<String, List<String>> partitionKeys;
 
   private final CqlSession session;
+  private final int batchSize;
+  private final int maxInFlight;
+  private final int fetchSize;
+
+  private final ConcurrentHashMap<StatementKey, PreparedStatement> prepared =
+      new ConcurrentHashMap<>();
 
   /**
    * Constructor.
@@ -29,7 +50,29 @@ public class CassandraDatabase implements Database {
   public CassandraDatabase(
       LinkedHashMap<String, LinkedHashMap<String, String>> databases, PropertiesEx prop)
       throws UnknownHostException {
+    this(databases, new LinkedHashMap<>(), prop);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param databases General information about a database
+   * @param partitionKeys Partition key columns of each table
+   * @param prop Database Configuration
+   * @throws UnknownHostException If a host is not found.
+   */
+  public CassandraDatabase(
+      LinkedHashMap<String, LinkedHashMap<String, String>> databases,
+      LinkedHashMap<String, List<String>> partitionKeys,
+      PropertiesEx prop)
+      throws UnknownHostException {
     this.databases = databases;
+    this.schemas = TableSchema.compile(databases);
+    this.partitionKeys = partitionKeys;
+    this.batchSize = Integer.parseInt(
+        prop.getProperty("batchSize", "" + DatabaseUtil.DEFAULT_BATCH_SIZE));
+    this.maxInFlight = Integer.parseInt(prop.getProperty("cqlMaxInFlight", "64"));
+    this.fetchSize = Integer.parseInt(prop.getProperty("fetchSize", "1000"));
     String ipAddress = prop.getProperty("cqlcontact");
     if (!Util.isNumeric(prop.getProperty("cqlcontact").substring(0, 2))) {
       InetAddress ipAddressInet = InetAddress.getByName(ipAddress);
@@ -67,6 +110,211 @@ public class CassandraDatabase implements Database {
   public DatabaseSelection select(
       String[] selecting, String database, String where) {
 
+    // Gets table information, used to parse and output data in their correct datatypes.
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+
+    // Actually executes the program
+    ResultSet rs = session.execute(selectQuery(selecting, database, where));
+
+    DatabaseSelection out = new DatabaseSelection();
+    for (Row row : rs) {
+      out.addRow(readRow(row, selecting, types));
+    }
+
+    return out;
+  }
+
+  /**
+   * Runs a CQL SELECT statement, binding the condition's values. The statement is prepared once
+   * per shape of condition, and reused with new values.
+   *
+   * @param selecting Columns to select in the database
+   * @param database Title of the table being selected from
+   * @param condition Typed WHERE statement.
+   * @return A List of rows, with each column within.
+   */
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    ColumnType[] valueTypes = TableSchema.types(schemas, database, condition.getColumns());
+    String where = condition.getShape();
+    PreparedStatement statement = prepared(
+        new StatementKey(StatementKey.Kind.SELECT_BOUND, database, selecting, where),
+        () -> selectQuery(selecting, database, where));
+
+    Object[] values = condition.getValues();
+    Object[] bound = Arrays.copyOf(values, values.length + (condition.getLimit() >= 0 ? 1 : 0));
+    for (int i = 0; i < values.length; i++) {
+      bound[i] = valueTypes[i].toCql(values[i]);
+    }
+    if (condition.getLimit() >= 0) {
+      bound[values.length] = condition.getLimit();
+    }
+
+    ResultSet rs = session.execute(statement.bind(bound));
+    DatabaseSelection out = new DatabaseSelection();
+    for (Row row : rs) {
+      out.addRow(readRow(row, selecting, types));
+    }
+    return out;
+  }
+
+  /**
+   * Selects a page of rows whose id lies in a range, in id order. Without the partition key this
+   * can't seek: every partition in the cluster is scanned in token order, a page of
+   * {@code fetchSize} rows at a time, keeping only the {@code pageSize} smallest ids. Its cost
+   * grows with the table, not the page, so prefer {@link
+   * #selectRange(String[], String, Condition, String, long, long, int)} when the partition is
+   * known.
+   *
+   * @param selecting Columns to select in the database. The id column is added if it is missing.
+   * @param database Title of the table being selected from
+   * @param idColumn Column holding the ids.
+   * @param fromId Smallest id to select.
+   * @param toId Largest id to select.
+   * @param pageSize Most rows to select.
+   * @return A List of rows, with each column within.
+   * @throws IllegalArgumentException if the page size is less than one.
+   */
+  @Override
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize)
+      throws IllegalArgumentException {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be at least 1!");
+    }
+    if (fromId > toId) {
+      return new DatabaseSelection();
+    }
+    String[] columns = DatabaseUtil.withColumn(selecting, idColumn);
+    ColumnType[] types = TableSchema.types(schemas, database, columns);
+    ColumnType idType = TableSchema.types(schemas, database, new String[] {idColumn})[0];
+    String where = Condition.range(idColumn, fromId, toId).getShape() + " ALLOW FILTERING";
+    PreparedStatement statement = prepared(
+        new StatementKey(StatementKey.Kind.SELECT_RANGE, database, columns, where),
+        () -> selectQuery(columns, database, where));
+    ResultSet rs = session.execute(statement
+        .bind(idType.toCql(fromId), idType.toCql(toId))
+        .setPageSize(fetchSize));
+
+    // Rows come back in token order, so keep the smallest ids seen so far, largest on top.
+    Comparator<Map<String, com.erliapp.utilities.database.Row<?>>> byId =
+        Comparator.comparingLong(row -> row.get(idColumn).getLong());
+    PriorityQueue<Map<String, com.erliapp.utilities.database.Row<?>>> smallest =
+        new PriorityQueue<>(byId.reversed());
+    for (Row row : rs) {
+      smallest.add(readRow(row, columns, types));
+      if (smallest.size() > pageSize) {
+        smallest.poll();
+      }
+    }
+
+    List<Map<String, com.erliapp.utilities.database.Row<?>>> rows = new ArrayList<>(smallest);
+    rows.sort(byId);
+    DatabaseSelection out = new DatabaseSelection();
+    for (Map<String, com.erliapp.utilities.database.Row<?>> row : rows) {
+      out.addRow(row);
+    }
+    return out;
+  }
+
+  /**
+   * Selects a page of rows from one partition whose id lies in a range. The id column must be a
+   * clustering column, and rows come back in clustering order. To read the next page, call this
+   * again with {@code fromId} set to one more than the last id read, until a page comes back with
+   * fewer than {@code pageSize} rows.
+   *
+   * @param selecting Columns to select in the database. The id column is added if it is missing.
+   * @param database Title of the table being selected from
+   * @param partition Value of every partition key column, such as {@code Condition.eq("user",
+   *     id)}.
+   * @param idColumn Clustering column holding the ids.
+   * @param fromId Smallest id to select.
+   * @param toId Largest id to select.
+   * @param pageSize Most rows to select.
+   * @return A List of rows, with each column within.
+   * @throws IllegalArgumentException if the page size is less than one, or the partition key is
+   *     missing.
+   */
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, Condition partition, String idColumn, long fromId,
+      long toId, int pageSize) throws IllegalArgumentException {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be at least 1!");
+    }
+    if (partition.getValues().length == 0) {
+      throw new IllegalArgumentException("The partition key of the rows is required!");
+    }
+    for (String column : partitionKeys.getOrDefault(database, List.of())) {
+      if (partition.getEquals(column) == null) {
+        throw new IllegalArgumentException("Partition key column " + column + " is required!");
+      }
+    }
+    if (fromId > toId) {
+      return new DatabaseSelection();
+    }
+    return select(DatabaseUtil.withColumn(selecting, idColumn), database,
+        partition.and(Condition.range(idColumn, fromId, toId)).limit(pageSize));
+  }
+
+  /**
+   * Runs a CQL SELECT statement, and stores the result by column.
+   *
+   * @param selecting Columns to select in the database
+   * @param database Title of the table being selected from
+   * @param where Anything after a selection, could be a WHERE statement, or a LIMIT statement
+   * @return Columns of the result.
+   */
+  @Override
+  public ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    ResultSet rs = session.execute(selectQuery(selecting, database, where));
+
+    ColumnarSelection out = new ColumnarSelection(selecting, types);
+    for (Row row : rs) {
+      out.addRow();
+      for (int i = 0; i < types.length; i++) {
+        if (row.isNull(i)) {
+          out.setNull(i);
+        } else {
+          types[i].read(row, i, out, i);
+        }
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Runs a CQL SELECT statement, and streams the rows as they are read. Rows are fetched a page at
+   * a time using the driver's paging, so memory use doesn't grow with the size of the result.
+   *
+   * @param selecting Columns to select in the database
+   * @param database Title of the table being selected from
+   * @param where Anything after a selection, could be a WHERE statement, or a LIMIT statement
+   * @return A lazily read Stream of rows, with each column within.
+   */
+  @Override
+  public Stream<Map<String, com.erliapp.utilities.database.Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    SimpleStatement statement =
+        SimpleStatement.newInstance(selectQuery(selecting, database, where))
+            .setPageSize(fetchSize);
+    ResultSet rs = session.execute(statement);
+
+    return StreamSupport.stream(rs.spliterator(), false)
+        .map(row -> readRow(row, selecting, types));
+  }
+
+  /**
+   * Builds a CQL SELECT statement.
+   *
+   * @param selecting Columns to select in the database
+   * @param database Title of the table being selected from
+   * @param where Anything after a selection, could be a WHERE statement, or a LIMIT statement
+   * @return SELECT query.
+   */
+  private static String selectQuery(String[] selecting, String database, String where) {
     // Gather items that are selected, and output as a String with commas
     StringBuilder selected = new StringBuilder();
     for (String item : selecting) {
@@ -89,28 +337,126 @@ public class CassandraDatabase implements Database {
       whereStatement += " ALLOW FILTERING";
     }
 
-    // Actually executes the program
-    ResultSet rs =
-        session.execute("SELECT " + selected + " FROM " + database + " " + whereStatement);
+    return "SELECT " + selected + " FROM " + database + " " + whereStatement;
+  }
+
+  /**
+   * Parses a row of a result into the correct datatypes.
+   *
+   * @param row Row to read.
+   * @param selecting Columns that were selected.
+   * @param types Data Type of each selected column.
+   * @return Column values, by column name.
+   */
+  private static Map<String, com.erliapp.utilities.database.Row<?>> readRow(
+      Row row, String[] selecting, ColumnType[] types) {
+    Map<String, com.erliapp.utilities.database.Row<?>> out = new LinkedHashMap<>();
+    for (int i = 0; i < types.length; i++) {
+      out.put(selecting[i], types[i].read(row, i));
+    }
+    return out;
+  }
+
+  /**
+   * Runs a CQL SELECT statement using the driver's asynchronous API, and reads every page of the
+   * result without blocking.
+   *
+   * @param selecting Columns to select in the database
+   * @param database Title of the table being selected from
+   * @param where Anything after a selection, could be a WHERE statement, or a LIMIT statement
+   * @return Future of a List of rows, with each column within.
+   */
+  @Override
+  public CompletableFuture<DatabaseSelection> selectAsync(
+      String[] selecting, String database, String where) {
+    ColumnType[] types;
+    try {
+      types = TableSchema.types(schemas, database, selecting);
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    SimpleStatement statement =
+        SimpleStatement.newInstance(selectQuery(selecting, database, where))
+            .setPageSize(fetchSize);
 
-    // Gets table information, and starts to parse and output data in their correct datatypes.
-    LinkedHashMap<String, String> table = databases.get(database);
     DatabaseSelection out = new DatabaseSelection();
-    for (Row row : rs.all()) {
-      out.addRow();
-      for (String i : selecting) {
-        if (table.get(i).equalsIgnoreCase("bigint")) {
-          out.addItem(i, new com.erliapp.utilities.database.Row<>(Long.class, row.getLong(i)));
-        } else if (table.get(i).equalsIgnoreCase("text")) {
-          out.addItem(i, new com.erliapp.utilities.database.Row<>(String.class, row.getString(i)));
-        } else if (table.get(i).equalsIgnoreCase("double")) {
-          out.addItem(i, new com.erliapp.utilities.database.Row<>(Double.class, row.getDouble(i)));
-        } else if (table.get(i).equalsIgnoreCase("uuid")) {
-          out.addItem(i, new com.erliapp.utilities.database.Row<>(UUID.class, row.getUuid(i)));
-        }
+    return session.executeAsync(statement)
+        .thenCompose(rs -> readPages(rs, selecting, types, out))
+        .toCompletableFuture();
+  }
+
+  /**
+   * Reads the current page of an asynchronous result, then fetches and reads the next page until
+   * there are none left.
+   *
+   * @param rs Result to read.
+   * @param selecting Columns that were selected.
+   * @param types Data Type of each selected column.
+   * @param out Selection to add rows to.
+   * @return Future of the selection, once every page has been read.
+   */
+  private static CompletionStage<DatabaseSelection> readPages(
+      AsyncResultSet rs, String[] selecting, ColumnType[] types, DatabaseSelection out) {
+    for (Row row : rs.currentPage()) {
+      out.addRow(readRow(row, selecting, types));
+    }
+    if (rs.hasMorePages()) {
+      return rs.fetchNextPage().thenCompose(next -> readPages(next, selecting, types, out));
+    }
+    return CompletableFuture.completedFuture(out);
+  }
+
+  /**
+   * Selects the rows of many partitions at once, by partition key. Each key is read with its own
+   * prepared request, which the driver routes straight to a replica owning the key, instead of an
+   * {@code IN} query that puts all of the work on a single coordinator. Reads run concurrently, up
+   * to the configured number of in-flight requests, so the whole call takes about as long as the
+   * slowest read.
+   *
+   * @param database Title of the table being selected from
+   * @param selecting Columns to select in the database
+   * @param keyColumn Partition key column, for tables with a single partition key column.
+   * @param keys Partition keys to read, converted to the key column's type. Duplicate keys are
+   *     only read once.
+   * @return Rows of every key, in the order of the keys.
+   */
+  public DatabaseSelection multiGet(
+      String database, String[] selecting, String keyColumn, Collection<?> keys) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    ColumnType keyType = TableSchema.types(schemas, database, new String[] {keyColumn})[0];
+    String where = keyColumn + " = ?";
+    PreparedStatement statement = prepared(
+        new StatementKey(StatementKey.Kind.SELECT, database, selecting, where),
+        () -> selectQuery(selecting, database, where));
+
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    List<CompletableFuture<DatabaseSelection>> reads = new ArrayList<>();
+    for (Object partition : new LinkedHashSet<>(keys)) {
+      try {
+        inFlight.acquire();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException(e);
       }
+      BoundStatement bound = statement.bind(keyType.toCql(partition)).setPageSize(fetchSize);
+      CompletableFuture<DatabaseSelection> read = session.executeAsync(bound)
+          .thenCompose(rs -> readPages(rs, selecting, types, new DatabaseSelection()))
+          .toCompletableFuture();
+      read.whenComplete((rows, error) -> inFlight.release());
+      reads.add(read);
     }
 
+    try {
+      CompletableFuture.allOf(reads.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    DatabaseSelection out = new DatabaseSelection();
+    for (CompletableFuture<DatabaseSelection> read : reads) {
+      for (Map<String, com.erliapp.utilities.database.Row<?>> row : read.join().getData()) {
+        out.addRow(row);
+      }
+    }
     return out;
   }
 
@@ -126,7 +472,19 @@ public class CassandraDatabase implements Database {
   }
 
   /**
-   * Runs the CQL Insert command.
+   * Runs a conditional CQL UPDATE as a lightweight transaction, and reports whether it applied.
+   *
+   * @param query UPDATE statement to run, ending in an {@code IF} clause.
+   * @return {@code true} if the condition held, and the update applied.
+   */
+  @Override
+  public boolean tryUpdate(String query) {
+    return session.execute(query).wasApplied();
+  }
+
+  /**
+   * Runs the CQL Insert command. The statement is prepared once per table and column list, and
+   * reused for every following insert.
    *
    * @param database Table to insert into
    * @param inserting List of columns to insert
@@ -134,14 +492,279 @@ public class CassandraDatabase implements Database {
    */
   @Override
   public void insert(String database, String[] inserting, Object... values) {
+    BoundStatement bound = prepareInsert(database, inserting).bind(values);
+    session.execute(bound);
+  }
 
-    // Gather data to insert as a string
-    String query = DatabaseUtil.setupInsertingData(database, inserting);
+  /**
+   * Runs any non-data request to a database, using the driver's asynchronous API.
+   *
+   * @param query Query to run.
+   * @return Future completed once the query has run.
+   */
+  @Override
+  public CompletableFuture<Void> updateAsync(String query) {
+    return session.executeAsync(query).thenAccept(rs -> { }).toCompletableFuture();
+  }
 
-    // Runs insert statement
-    PreparedStatement prepared1 = session.prepare(query);
-    BoundStatement bound = (prepared1.bind(values));
-    session.execute(bound);
+  /**
+   * Runs the CQL Insert command using the driver's asynchronous API. If the statement hasn't been
+   * prepared yet, it is prepared asynchronously as well.
+   *
+   * @param database Table to insert into
+   * @param inserting List of columns to insert
+   * @param values Any values being inserted.
+   * @return Future completed once the row has been inserted.
+   */
+  @Override
+  public CompletableFuture<Void> insertAsync(
+      String database, String[] inserting, Object... values) {
+    StatementKey key = new StatementKey(StatementKey.Kind.INSERT, database, inserting, null);
+    PreparedStatement statement = prepared.get(key);
+    CompletionStage<PreparedStatement> preparing;
+    if (statement != null) {
+      preparing = CompletableFuture.completedFuture(statement);
+    } else {
+      StatementKey copy = key.copy();
+      preparing = session.prepareAsync(DatabaseUtil.setupInsertingData(database, inserting))
+          .thenApply(ready -> {
+            PreparedStatement existing = prepared.putIfAbsent(copy, ready);
+            return existing == null ? ready : existing;
+          });
+    }
+    return preparing
+        .thenCompose(ready -> session.executeAsync(ready.bind(values)))
+        .thenAccept(rs -> { })
+        .toCompletableFuture();
+  }
+
+  /**
+   * Runs the CQL Insert command with {@code IF NOT EXISTS}, as a lightweight transaction. The
+   * statement is prepared once per table and column list.
+   *
+   * @param database Table to insert into
+   * @param inserting List of columns to insert
+   * @param values Any values being inserted.
+   * @return {@code true} if the row was inserted, {@code false} if it already existed.
+   */
+  @Override
+  public boolean insertIfAbsent(String database, String[] inserting, Object... values) {
+    PreparedStatement statement = prepared(
+        new StatementKey(StatementKey.Kind.INSERT_IF_ABSENT, database, inserting, null), () -> {
+          String insert = DatabaseUtil.setupInsertingData(database, inserting);
+          return insert.substring(0, insert.length() - 1) + " IF NOT EXISTS;";
+        });
+    return session.execute(statement.bind(values)).wasApplied();
+  }
+
+  /**
+   * Inserts many rows into the same columns. Rows are grouped by partition key, using the
+   * partition keys set in the {@link DatabaseBuilder}, and each group is sent as an
+   * {@code UNLOGGED} batch, so every batch only touches a single partition. Batches run
+   * concurrently, up to the configured number of in-flight requests.
+   *
+   * <p>If a table has no partition key set, rows are grouped by the routing key the driver
+   * computes for the prepared statement.
+   *
+   * @param database Table to insert into
+   * @param inserting List of columns to insert
+   * @param rows Values for each row, in the same order as {@code inserting}
+   * @param batchSize Maximum number of rows per batch
+   * @return Number of rows written by each batch.
+   */
+  @Override
+  public int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1!");
+    }
+    PreparedStatement statement = prepareInsert(database, inserting);
+    int[] keyIndexes = partitionKeyIndexes(database, inserting);
+
+    // Holds onto at most one full window of rows before sending everything that's grouped.
+    int window = batchSize * maxInFlight;
+    Semaphore inFlight = new Semaphore(maxInFlight);
+    List<CompletableFuture<AsyncResultSet>> sent = new ArrayList<>();
+    List<Integer> counts = new ArrayList<>();
+    LinkedHashMap<Object, List<BatchableStatement<?>>> groups = new LinkedHashMap<>();
+    int buffered = 0;
+
+    for (Object[] row : rows) {
+      BoundStatement bound = statement.bind(row);
+      Object partition = partitionOf(bound, row, keyIndexes);
+      if (partition == null) {
+        send(List.of(bound), inFlight, sent, counts);
+        continue;
+      }
+
+      List<BatchableStatement<?>> group =
+          groups.computeIfAbsent(partition, k -> new ArrayList<>());
+      group.add(bound);
+      buffered++;
+      if (group.size() == batchSize) {
+        groups.remove(partition);
+        buffered -= group.size();
+        send(group, inFlight, sent, counts);
+      }
+      if (buffered >= window) {
+        for (List<BatchableStatement<?>> pending : groups.values()) {
+          send(pending, inFlight, sent, counts);
+        }
+        groups.clear();
+        buffered = 0;
+      }
+    }
+    for (List<BatchableStatement<?>> pending : groups.values()) {
+      send(pending, inFlight, sent, counts);
+    }
+
+    try {
+      CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      throw new RuntimeException(e.getCause());
+    }
+    return counts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Inserts many rows into the same columns, using the batch size set in the
+   * {@link DatabaseBuilder}.
+   *
+   * @param database Table to insert into
+   * @param inserting List of columns to insert
+   * @param rows Values for each row, in the same order as {@code inserting}
+   * @return Number of rows written by each batch.
+   */
+  @Override
+  public int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows) {
+    return insertBatch(database, inserting, rows, batchSize);
+  }
+
+  /**
+   * Sends a group of statements for the same partition, waiting if too many requests are already
+   * in flight.
+   *
+   * @param group Statements to send.
+   * @param inFlight Limits the number of requests in flight.
+   * @param sent Futures of every request sent so far.
+   * @param counts Number of rows in every request sent so far.
+   */
+  private void send(
+      List<BatchableStatement<?>> group,
+      Semaphore inFlight,
+      List<CompletableFuture<AsyncResultSet>> sent,
+      List<Integer> counts) {
+    try {
+      inFlight.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    }
+
+    CompletableFuture<AsyncResultSet> future;
+    if (group.size() == 1) {
+      future = session.executeAsync((BoundStatement) group.get(0)).toCompletableFuture();
+    } else {
+      BatchStatement batch = BatchStatement.newInstance(BatchType.UNLOGGED, group);
+      future = session.executeAsync(batch).toCompletableFuture();
+    }
+    future.whenComplete((rs, error) -> inFlight.release());
+    sent.add(future);
+    counts.add(group.size());
+  }
+
+  /**
+   * Finds where the partition key columns of a table are within a list of columns.
+   *
+   * @param database Table to look up
+   * @param inserting Columns being inserted
+   * @return Indexes of the partition key columns, or {@code null} if the table has none set.
+   * @throws IllegalArgumentException if a partition key column isn't being inserted.
+   */
+  private int[] partitionKeyIndexes(String database, String[] inserting) {
+    List<String> keys = partitionKeys.get(database);
+    if (keys == null || keys.isEmpty()) {
+      return null;
+    }
+    List<String> columns = Arrays.asList(inserting);
+    int[] indexes = new int[keys.size()];
+    for (int i = 0; i < indexes.length; i++) {
+      indexes[i] = columns.indexOf(keys.get(i));
+      if (indexes[i] < 0) {
+        throw new IllegalArgumentException(
+            "Partition key " + keys.get(i) + " of " + database + " must be inserted!");
+      }
+    }
+    return indexes;
+  }
+
+  /**
+   * Gets the partition a row belongs to.
+   *
+   * @param bound Statement bound to the row.
+   * @param row Values of the row.
+   * @param keyIndexes Indexes of the partition key columns, or {@code null} to use the routing key.
+   * @return Value identifying the partition, or {@code null} if it isn't known.
+   */
+  private static Object partitionOf(BoundStatement bound, Object[] row, int[] keyIndexes) {
+    if (keyIndexes == null) {
+      return bound.getRoutingKey();
+    }
+    if (keyIndexes.length == 1) {
+      return row[keyIndexes[0]];
+    }
+    Object[] key = new Object[keyIndexes.length];
+    for (int i = 0; i < key.length; i++) {
+      key[i] = row[keyIndexes[i]];
+    }
+    return Arrays.asList(key);
+  }
+
+  /**
+   * Prepares the full-column insert statement for every table, so the first insert into a table
+   * doesn't have to wait for the cluster to prepare it.
+   */
+  public void prepareInserts() {
+    for (Map.Entry<String, TableSchema> table : schemas.entrySet()) {
+      prepareInsert(table.getKey(), table.getValue().getColumns());
+    }
+  }
+
+  /**
+   * Gets the prepared insert statement for a table and column list, preparing it if needed.
+   *
+   * @param database Table to insert into
+   * @param inserting List of columns to insert
+   * @return Prepared statement.
+   */
+  private PreparedStatement prepareInsert(String database, String[] inserting) {
+    return prepared(
+        new StatementKey(StatementKey.Kind.INSERT, database, inserting, null),
+        () -> DatabaseUtil.setupInsertingData(database, inserting));
+  }
+
+  /**
+   * Gets a prepared statement from the cache, preparing it if it isn't cached.
+   *
+   * @param key Shape of the statement.
+   * @param query Builds the query, only called if the statement isn't cached.
+   * @return Prepared statement.
+   */
+  private PreparedStatement prepared(StatementKey key, Supplier<String> query) {
+    PreparedStatement statement = prepared.get(key);
+    if (statement == null) {
+      statement = session.prepare(query.get());
+      PreparedStatement existing = prepared.putIfAbsent(key.copy(), statement);
+      if (existing != null) {
+        statement = existing;
+      }
+    }
+    return statement;
+  }
+
+  @Override
+  public boolean isCql() {
+    return true;
   }
 
   /** Closes the connection to the database. */
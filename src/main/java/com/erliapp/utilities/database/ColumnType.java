@@ -0,0 +1,242 @@
+package com.erliapp.utilities.database;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.UUID;
+
+/**
+ * Data Types a column can have. Each type knows how to read its values from a result, and how to
+ * bind them to a statement, by column position. Looking a type up once per column means reading a
+ * value doesn't need to compare type names.
+ */
+public enum ColumnType {
+  BIGINT {
+    @Override
+    Row<?> read(ResultSet rs, int index) throws SQLException {
+      return Row.of(rs.getLong(index));
+    }
+
+    @Override
+    Row<?> read(com.datastax.oss.driver.api.core.cql.Row row, int index) {
+      return Row.of(row.getLong(index));
+    }
+
+    @Override
+    void read(ResultSet rs, int index, ColumnarSelection out, int column) throws SQLException {
+      long value = rs.getLong(index);
+      if (rs.wasNull()) {
+        out.setNull(column);
+      } else {
+        out.setLong(column, value);
+      }
+    }
+
+    @Override
+    void read(
+        com.datastax.oss.driver.api.core.cql.Row row, int index, ColumnarSelection out, int column) {
+      out.setLong(column, row.getLong(index));
+    }
+
+    @Override
+    void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+      if (value == null) {
+        stmt.setNull(index, Types.BIGINT);
+      } else {
+        stmt.setLong(index, ((Number) value).longValue());
+      }
+    }
+
+    @Override
+    Object toCql(Object value) {
+      return value == null ? null : ((Number) value).longValue();
+    }
+  },
+  TEXT {
+    @Override
+    Row<?> read(ResultSet rs, int index) throws SQLException {
+      return Row.of(rs.getString(index));
+    }
+
+    @Override
+    Row<?> read(com.datastax.oss.driver.api.core.cql.Row row, int index) {
+      return Row.of(row.getString(index));
+    }
+
+    @Override
+    void read(ResultSet rs, int index, ColumnarSelection out, int column) throws SQLException {
+      out.setString(column, rs.getString(index));
+    }
+
+    @Override
+    void read(
+        com.datastax.oss.driver.api.core.cql.Row row, int index, ColumnarSelection out, int column) {
+      out.setString(column, row.getString(index));
+    }
+
+    @Override
+    void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+      stmt.setString(index, value == null ? null : value.toString());
+    }
+
+    @Override
+    Object toCql(Object value) {
+      return value == null ? null : value.toString();
+    }
+  },
+  DOUBLE {
+    @Override
+    Row<?> read(ResultSet rs, int index) throws SQLException {
+      return Row.of(rs.getDouble(index));
+    }
+
+    @Override
+    Row<?> read(com.datastax.oss.driver.api.core.cql.Row row, int index) {
+      return Row.of(row.getDouble(index));
+    }
+
+    @Override
+    void read(ResultSet rs, int index, ColumnarSelection out, int column) throws SQLException {
+      double value = rs.getDouble(index);
+      if (rs.wasNull()) {
+        out.setNull(column);
+      } else {
+        out.setDouble(column, value);
+      }
+    }
+
+    @Override
+    void read(
+        com.datastax.oss.driver.api.core.cql.Row row, int index, ColumnarSelection out, int column) {
+      out.setDouble(column, row.getDouble(index));
+    }
+
+    @Override
+    void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+      if (value == null) {
+        stmt.setNull(index, Types.DOUBLE);
+      } else {
+        stmt.setDouble(index, ((Number) value).doubleValue());
+      }
+    }
+
+    @Override
+    Object toCql(Object value) {
+      return value == null ? null : ((Number) value).doubleValue();
+    }
+  },
+  UUID {
+    @Override
+    Row<?> read(ResultSet rs, int index) throws SQLException {
+      String value = rs.getString(index);
+      return Row.of(value == null ? null : java.util.UUID.fromString(value));
+    }
+
+    @Override
+    Row<?> read(com.datastax.oss.driver.api.core.cql.Row row, int index) {
+      return Row.of(row.getUuid(index));
+    }
+
+    @Override
+    void read(ResultSet rs, int index, ColumnarSelection out, int column) throws SQLException {
+      String value = rs.getString(index);
+      out.setUuid(column, value == null ? null : java.util.UUID.fromString(value));
+    }
+
+    @Override
+    void read(
+        com.datastax.oss.driver.api.core.cql.Row row, int index, ColumnarSelection out, int column) {
+      out.setUuid(column, row.getUuid(index));
+    }
+
+    @Override
+    void bind(PreparedStatement stmt, int index, Object value) throws SQLException {
+      stmt.setString(index, value == null ? null : value.toString());
+    }
+
+    @Override
+    Object toCql(Object value) {
+      return value == null || value instanceof java.util.UUID
+          ? value
+          : java.util.UUID.fromString(value.toString());
+    }
+  };
+
+  /**
+   * Reads a value from a JDBC result.
+   *
+   * @param rs Result positioned on the row to read.
+   * @param index Position of the column, starting at 1.
+   * @return Value of the column.
+   * @throws SQLException If the value could not be read.
+   */
+  abstract Row<?> read(ResultSet rs, int index) throws SQLException;
+
+  /**
+   * Reads a value from a Cassandra row.
+   *
+   * @param row Row to read.
+   * @param index Position of the column, starting at 0.
+   * @return Value of the column.
+   */
+  abstract Row<?> read(com.datastax.oss.driver.api.core.cql.Row row, int index);
+
+  /**
+   * Reads a value from a JDBC result into the last row of a columnar selection.
+   *
+   * @param rs Result positioned on the row to read.
+   * @param index Position of the column in the result, starting at 1.
+   * @param out Selection to store the value in.
+   * @param column Index of the column in the selection.
+   * @throws SQLException If the value could not be read.
+   */
+  abstract void read(ResultSet rs, int index, ColumnarSelection out, int column)
+      throws SQLException;
+
+  /**
+   * Reads a non-null value from a Cassandra row into the last row of a columnar selection.
+   *
+   * @param row Row to read.
+   * @param index Position of the column in the row, starting at 0.
+   * @param out Selection to store the value in.
+   * @param column Index of the column in the selection.
+   */
+  abstract void read(
+      com.datastax.oss.driver.api.core.cql.Row row, int index, ColumnarSelection out, int column);
+
+  /**
+   * Binds a value to a JDBC statement.
+   *
+   * @param stmt Statement to bind to.
+   * @param index Position of the parameter, starting at 1.
+   * @param value Value to bind, may be {@code null}.
+   * @throws SQLException If the value could not be bound.
+   */
+  abstract void bind(PreparedStatement stmt, int index, Object value) throws SQLException;
+
+  /**
+   * Converts a value to the Java type the Cassandra driver binds for this type, so a statement
+   * can be bound with, for example, an {@code Integer} for a {@code BIGINT} column.
+   *
+   * @param value Value to convert, may be {@code null}.
+   * @return Converted value.
+   */
+  abstract Object toCql(Object value);
+
+  /**
+   * Finds a Data Type by name, ignoring case.
+   *
+   * @param name Name of the type, such as {@code bigint}.
+   * @return Data Type.
+   * @throws IllegalArgumentException if the type is not supported.
+   */
+  public static ColumnType fromName(String name) throws IllegalArgumentException {
+    for (ColumnType type : values()) {
+      if (type.name().equalsIgnoreCase(name)) {
+        return type;
+      }
+    }
+    throw new IllegalArgumentException("Data Type " + name + " is invalid!");
+  }
+}
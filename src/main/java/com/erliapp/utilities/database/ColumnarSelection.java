@@ -0,0 +1,400 @@
+package com.erliapp.utilities.database;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Column-oriented Database Selection. Each column is stored in a single primitive array, based on
+ * its type in the table: {@code long[]} for {@code BIGINT}, {@code double[]} for {@code DOUBLE},
+ * two {@code long[]} for {@code UUID}, and {@code String[]} for {@code TEXT}. This avoids an object
+ * per value, so large selections use much less memory than {@link DatabaseSelection}.
+ */
+public class ColumnarSelection {
+
+  private final String[] columns;
+  private final Map<String, Integer> indexes;
+  private final ColumnType[] types;
+
+  private final long[][] longs;
+  private final long[][] lowLongs;
+  private final double[][] doubles;
+  private final String[][] strings;
+  private final BitSet[] nulls;
+
+  private int size = 0;
+  private int capacity;
+
+  /**
+   * Constructor.
+   *
+   * @param columns Names of the selected columns.
+   * @param types Data Type of each column, as set in the {@link DatabaseBuilder}.
+   * @throws IllegalArgumentException if a Data Type is not supported.
+   */
+  public ColumnarSelection(String[] columns, String[] types) throws IllegalArgumentException {
+    this(columns, Arrays.stream(types).map(ColumnType::fromName).toArray(ColumnType[]::new));
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param columns Names of the selected columns.
+   * @param types Data Type of each column.
+   */
+  public ColumnarSelection(String[] columns, ColumnType[] types) {
+    this.columns = columns.clone();
+    this.indexes = new HashMap<>();
+    this.types = types.clone();
+    this.longs = new long[columns.length][];
+    this.lowLongs = new long[columns.length][];
+    this.doubles = new double[columns.length][];
+    this.strings = new String[columns.length][];
+    this.nulls = new BitSet[columns.length];
+    this.capacity = 16;
+
+    for (int i = 0; i < columns.length; i++) {
+      indexes.put(columns[i], i);
+      nulls[i] = new BitSet();
+      switch (types[i]) {
+        case BIGINT:
+          longs[i] = new long[capacity];
+          break;
+        case DOUBLE:
+          doubles[i] = new double[capacity];
+          break;
+        case UUID:
+          longs[i] = new long[capacity];
+          lowLongs[i] = new long[capacity];
+          break;
+        default:
+          strings[i] = new String[capacity];
+          break;
+      }
+    }
+  }
+
+  /**
+   * Adds an empty row to the end of the selection.
+   *
+   * @return Index of the new row.
+   */
+  public int addRow() {
+    if (size == capacity) {
+      grow();
+    }
+    return size++;
+  }
+
+  /**
+   * Adds every row of another selection to the end of this one.
+   *
+   * @param other Selection to add, with the same column types.
+   * @throws IllegalArgumentException if the column types are different.
+   */
+  public void addAll(ColumnarSelection other) throws IllegalArgumentException {
+    if (!Arrays.equals(types, other.types)) {
+      throw new IllegalArgumentException("Selections must have the same column types!");
+    }
+    while (capacity < size + other.size) {
+      grow();
+    }
+    for (int i = 0; i < columns.length; i++) {
+      if (longs[i] != null) {
+        System.arraycopy(other.longs[i], 0, longs[i], size, other.size);
+      }
+      if (lowLongs[i] != null) {
+        System.arraycopy(other.lowLongs[i], 0, lowLongs[i], size, other.size);
+      }
+      if (doubles[i] != null) {
+        System.arraycopy(other.doubles[i], 0, doubles[i], size, other.size);
+      }
+      if (strings[i] != null) {
+        System.arraycopy(other.strings[i], 0, strings[i], size, other.size);
+      }
+      BitSet otherNulls = other.nulls[i];
+      for (int row = otherNulls.nextSetBit(0); row >= 0; row = otherNulls.nextSetBit(row + 1)) {
+        nulls[i].set(size + row);
+      }
+    }
+    size += other.size;
+  }
+
+  /**
+   * Sets a {@code BIGINT} value in the last row.
+   *
+   * @param column Index of the column.
+   * @param value Value to set.
+   */
+  public void setLong(int column, long value) {
+    checkType(column, ColumnType.BIGINT);
+    longs[column][size - 1] = value;
+  }
+
+  /**
+   * Sets a {@code DOUBLE} value in the last row.
+   *
+   * @param column Index of the column.
+   * @param value Value to set.
+   */
+  public void setDouble(int column, double value) {
+    checkType(column, ColumnType.DOUBLE);
+    doubles[column][size - 1] = value;
+  }
+
+  /**
+   * Sets a {@code TEXT} value in the last row.
+   *
+   * @param column Index of the column.
+   * @param value Value to set, may be {@code null}.
+   */
+  public void setString(int column, String value) {
+    checkType(column, ColumnType.TEXT);
+    strings[column][size - 1] = value;
+    nulls[column].set(size - 1, value == null);
+  }
+
+  /**
+   * Sets a {@code UUID} value in the last row.
+   *
+   * @param column Index of the column.
+   * @param value Value to set, may be {@code null}.
+   */
+  public void setUuid(int column, UUID value) {
+    checkType(column, ColumnType.UUID);
+    if (value == null) {
+      setNull(column);
+      return;
+    }
+    longs[column][size - 1] = value.getMostSignificantBits();
+    lowLongs[column][size - 1] = value.getLeastSignificantBits();
+  }
+
+  /**
+   * Marks a value in the last row as {@code null}.
+   *
+   * @param column Index of the column.
+   */
+  public void setNull(int column) {
+    nulls[column].set(size - 1);
+  }
+
+  /**
+   * Gets a {@code BIGINT} value.
+   *
+   * @param row Index of the row.
+   * @param column Index of the column.
+   * @return Value, or {@code 0} if it is {@code null}.
+   */
+  public long getLong(int row, int column) {
+    checkType(column, ColumnType.BIGINT);
+    return longs[column][checkRow(row)];
+  }
+
+  /**
+   * Gets a {@code BIGINT} value.
+   *
+   * @param row Index of the row.
+   * @param column Name of the column.
+   * @return Value, or {@code 0} if it is {@code null}.
+   */
+  public long getLong(int row, String column) {
+    return getLong(row, getColumnIndex(column));
+  }
+
+  /**
+   * Gets a {@code DOUBLE} value.
+   *
+   * @param row Index of the row.
+   * @param column Index of the column.
+   * @return Value, or {@code 0} if it is {@code null}.
+   */
+  public double getDouble(int row, int column) {
+    checkType(column, ColumnType.DOUBLE);
+    return doubles[column][checkRow(row)];
+  }
+
+  /**
+   * Gets a {@code DOUBLE} value.
+   *
+   * @param row Index of the row.
+   * @param column Name of the column.
+   * @return Value, or {@code 0} if it is {@code null}.
+   */
+  public double getDouble(int row, String column) {
+    return getDouble(row, getColumnIndex(column));
+  }
+
+  /**
+   * Gets a {@code UUID} value.
+   *
+   * @param row Index of the row.
+   * @param column Index of the column.
+   * @return Value, or {@code null} if it is {@code null}.
+   */
+  public UUID getUuid(int row, int column) {
+    checkType(column, ColumnType.UUID);
+    if (nulls[column].get(checkRow(row))) {
+      return null;
+    }
+    return new UUID(longs[column][row], lowLongs[column][row]);
+  }
+
+  /**
+   * Gets a {@code UUID} value.
+   *
+   * @param row Index of the row.
+   * @param column Name of the column.
+   * @return Value, or {@code null} if it is {@code null}.
+   */
+  public UUID getUuid(int row, String column) {
+    return getUuid(row, getColumnIndex(column));
+  }
+
+  /**
+   * Gets a value as a String. Works for columns of any type.
+   *
+   * @param row Index of the row.
+   * @param column Index of the column.
+   * @return Value as a String, or {@code null} if it is {@code null}.
+   */
+  public String getString(int row, int column) {
+    if (nulls[column].get(checkRow(row))) {
+      return null;
+    }
+    switch (types[column]) {
+      case BIGINT:
+        return Long.toString(longs[column][row]);
+      case DOUBLE:
+        return Double.toString(doubles[column][row]);
+      case UUID:
+        return getUuid(row, column).toString();
+      default:
+        return strings[column][row];
+    }
+  }
+
+  /**
+   * Gets a value as a String. Works for columns of any type.
+   *
+   * @param row Index of the row.
+   * @param column Name of the column.
+   * @return Value as a String, or {@code null} if it is {@code null}.
+   */
+  public String getString(int row, String column) {
+    return getString(row, getColumnIndex(column));
+  }
+
+  /**
+   * Checks if a value is {@code null}.
+   *
+   * @param row Index of the row.
+   * @param column Index of the column.
+   * @return {@code true} if the value is {@code null}.
+   */
+  public boolean isNull(int row, int column) {
+    return nulls[column].get(checkRow(row));
+  }
+
+  /**
+   * Checks if a value is {@code null}.
+   *
+   * @param row Index of the row.
+   * @param column Name of the column.
+   * @return {@code true} if the value is {@code null}.
+   */
+  public boolean isNull(int row, String column) {
+    return isNull(row, getColumnIndex(column));
+  }
+
+  /**
+   * Gets the index of a column.
+   *
+   * @param column Name of the column.
+   * @return Index of the column.
+   * @throws IllegalArgumentException if the column wasn't selected.
+   */
+  public int getColumnIndex(String column) throws IllegalArgumentException {
+    Integer index = indexes.get(column);
+    if (index == null) {
+      throw new IllegalArgumentException("Column " + column + " was not selected!");
+    }
+    return index;
+  }
+
+  /**
+   * Gets the Data Type of a column.
+   *
+   * @param column Index of the column.
+   * @return Data Type.
+   */
+  public ColumnType getType(int column) {
+    return types[column];
+  }
+
+  /**
+   * Gets the names of the selected columns.
+   *
+   * @return Column names, in selection order.
+   */
+  public String[] getColumns() {
+    return columns.clone();
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return Number of rows.
+   */
+  public int size() {
+    return size;
+  }
+
+  /** Doubles the capacity of every column. */
+  private void grow() {
+    capacity *= 2;
+    for (int i = 0; i < columns.length; i++) {
+      if (longs[i] != null) {
+        longs[i] = Arrays.copyOf(longs[i], capacity);
+      }
+      if (lowLongs[i] != null) {
+        lowLongs[i] = Arrays.copyOf(lowLongs[i], capacity);
+      }
+      if (doubles[i] != null) {
+        doubles[i] = Arrays.copyOf(doubles[i], capacity);
+      }
+      if (strings[i] != null) {
+        strings[i] = Arrays.copyOf(strings[i], capacity);
+      }
+    }
+  }
+
+  /**
+   * Checks that a column has a given type.
+   *
+   * @param column Index of the column.
+   * @param type Expected type.
+   * @throws IllegalStateException if the column has a different type.
+   */
+  private void checkType(int column, ColumnType type) throws IllegalStateException {
+    if (types[column] != type) {
+      throw new IllegalStateException("Column " + columns[column] + " has a different type!");
+    }
+  }
+
+  /**
+   * Checks that a row exists.
+   *
+   * @param row Index of the row.
+   * @return The same index.
+   * @throws IndexOutOfBoundsException if the row doesn't exist.
+   */
+  private int checkRow(int row) throws IndexOutOfBoundsException {
+    if (row < 0 || row >= size) {
+      throw new IndexOutOfBoundsException("Row " + row + " is out of bounds for size " + size);
+    }
+    return row;
+  }
+}
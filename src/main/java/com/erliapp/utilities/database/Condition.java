@@ -0,0 +1,293 @@
+package com.erliapp.utilities.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Typed WHERE statement for {@link Database#select(String[], String, Condition)}.
+ *
+ * <p>Values are never written into the query. A condition compiles to a query with a placeholder
+ * for each value, such as {@code id = ? AND ts >= ? AND ts <= ? LIMIT ?}, which only depends on
+ * its shape, and the values are bound when it runs. Every condition of the same shape shares one
+ * prepared statement, so the database only parses and plans it once.
+ *
+ * <p>Conditions are immutable, and can be combined with {@link #and(Condition)}.
+ */
+public final class Condition {
+
+  private static final Pattern COLUMN = Pattern.compile("[A-Za-z_][A-Za-z0-9_]*");
+  private static final Condition ALL = new Condition(List.of(), List.of(), List.of(), -1);
+
+  private final List<String> terms;
+  private final List<String> columns;
+  private final List<Object> values;
+  private final int limit;
+
+  /**
+   * Constructor.
+   *
+   * @param terms Parts of the WHERE statement, joined with {@code AND}.
+   * @param columns Column of each placeholder.
+   * @param values Value of each placeholder.
+   * @param limit Most rows to select, or {@code -1} for no limit.
+   */
+  private Condition(List<String> terms, List<String> columns, List<Object> values, int limit) {
+    this.terms = terms;
+    this.columns = columns;
+    this.values = values;
+    this.limit = limit;
+  }
+
+  /**
+   * Creates a condition that matches every row.
+   *
+   * @return Empty condition.
+   */
+  public static Condition all() {
+    return ALL;
+  }
+
+  /**
+   * Creates a condition that a column equals a value.
+   *
+   * @param column Column to compare.
+   * @param value Value the column must equal.
+   * @return New condition.
+   * @throws IllegalArgumentException if the column name is invalid, or the value is null.
+   */
+  public static Condition eq(String column, Object value) throws IllegalArgumentException {
+    return of(column + " = ?", column, value);
+  }
+
+  /**
+   * Creates a condition that a column lies in a range, including both ends.
+   *
+   * @param column Column to compare.
+   * @param from Smallest value.
+   * @param to Largest value.
+   * @return New condition.
+   * @throws IllegalArgumentException if the column name is invalid, or a value is null.
+   */
+  public static Condition range(String column, Object from, Object to)
+      throws IllegalArgumentException {
+    return of(column + " >= ? AND " + column + " <= ?", column, from, to);
+  }
+
+  /**
+   * Creates a condition that a column equals one of several values.
+   *
+   * @param column Column to compare.
+   * @param values Values the column may equal.
+   * @return New condition.
+   * @throws IllegalArgumentException if the column name is invalid, there are no values, or a value
+   *     is null.
+   */
+  public static Condition in(String column, Object... values) throws IllegalArgumentException {
+    if (values.length == 0) {
+      throw new IllegalArgumentException("IN needs at least one value!");
+    }
+    String placeholders = String.join(", ", Collections.nCopies(values.length, "?"));
+    return of(column + " IN (" + placeholders + ")", column, values);
+  }
+
+  /**
+   * Creates a condition that a column equals one of several values.
+   *
+   * @param column Column to compare.
+   * @param values Values the column may equal.
+   * @return New condition.
+   * @throws IllegalArgumentException if the column name is invalid, there are no values, or a value
+   *     is null.
+   */
+  public static Condition in(String column, Collection<?> values) throws IllegalArgumentException {
+    return in(column, values.toArray());
+  }
+
+  /**
+   * Creates a condition that every one of several conditions holds.
+   *
+   * @param conditions Conditions to combine.
+   * @return New condition, using the smallest limit of the conditions.
+   */
+  public static Condition allOf(Condition... conditions) {
+    Condition out = ALL;
+    for (Condition condition : conditions) {
+      out = out.and(condition);
+    }
+    return out;
+  }
+
+  /**
+   * Creates a condition that both this and another condition hold.
+   *
+   * @param other Condition to add.
+   * @return New condition, using the smaller limit of the two.
+   */
+  public Condition and(Condition other) {
+    int combined = limit < 0 ? other.limit : other.limit < 0 ? limit : Math.min(limit, other.limit);
+    return new Condition(
+        concat(terms, other.terms), concat(columns, other.columns), concat(values, other.values),
+        combined);
+  }
+
+  /**
+   * Limits how many rows are selected.
+   *
+   * @param limit Most rows to select.
+   * @return New condition with the limit.
+   * @throws IllegalArgumentException if the limit is less than one.
+   */
+  public Condition limit(int limit) throws IllegalArgumentException {
+    if (limit < 1) {
+      throw new IllegalArgumentException("Limit must be at least 1!");
+    }
+    return new Condition(terms, columns, values, limit);
+  }
+
+  /**
+   * Gets the WHERE statement with a placeholder for each value, and for the limit. Conditions
+   * with the same shape give the same statement.
+   *
+   * @return WHERE statement, in the form taken by {@link Database#select(String[], String,
+   *     String)}.
+   */
+  public String getShape() {
+    String where = String.join(" AND ", terms);
+    if (limit < 0) {
+      return where;
+    }
+    return where.isEmpty() ? "LIMIT ?" : where + " LIMIT ?";
+  }
+
+  /**
+   * Gets the column compared by each placeholder, in order. Ranges and IN lists name their column
+   * once per value.
+   *
+   * @return Column names.
+   */
+  String[] getColumns() {
+    return columns.toArray(new String[0]);
+  }
+
+  /**
+   * Gets the value of each placeholder, in order, not including the limit.
+   *
+   * @return Values.
+   */
+  Object[] getValues() {
+    return values.toArray();
+  }
+
+  /**
+   * Gets the most rows to select.
+   *
+   * @return Limit, or {@code -1} for no limit.
+   */
+  int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Finds the value a column must equal.
+   *
+   * @param column Column to look up, ignoring case.
+   * @return Value, or {@code null} if the condition doesn't compare the column with {@code =}.
+   */
+  Object getEquals(String column) {
+    for (int i = 0, value = 0; i < terms.size(); i++) {
+      String term = terms.get(i);
+      if (term.equalsIgnoreCase(column + " = ?")) {
+        return values.get(value);
+      }
+      value += term.length() - term.replace("?", "").length();
+    }
+    return null;
+  }
+
+  /**
+   * Writes the condition as a WHERE statement with the values written in, as SQL literals. Used
+   * by databases that can't bind values, and to tell conditions apart.
+   *
+   * @return WHERE statement.
+   */
+  String toWhere() {
+    StringBuilder out = new StringBuilder();
+    String shape = getShape();
+    int value = 0;
+    for (int i = 0; i < shape.length(); i++) {
+      char c = shape.charAt(i);
+      if (c != '?') {
+        out.append(c);
+      } else if (value < values.size()) {
+        out.append(literal(values.get(value++)));
+      } else {
+        out.append(limit);
+      }
+    }
+    return out.toString();
+  }
+
+  @Override
+  public String toString() {
+    return "Condition [" + getShape() + ", values=" + values + ", limit=" + limit + "]";
+  }
+
+  /**
+   * Creates a condition from a single term.
+   *
+   * @param term Part of the WHERE statement.
+   * @param column Column the term compares.
+   * @param values Value of each of the term's placeholders.
+   * @return New condition.
+   * @throws IllegalArgumentException if the column name is invalid, or a value is null.
+   */
+  private static Condition of(String term, String column, Object... values)
+      throws IllegalArgumentException {
+    // Column names are written into the query, so they can't be allowed to hold anything else.
+    if (column == null || !COLUMN.matcher(column).matches()) {
+      throw new IllegalArgumentException("Column " + column + " is invalid!");
+    }
+    for (Object value : values) {
+      if (value == null) {
+        throw new IllegalArgumentException("Values of a Condition can't be null!");
+      }
+    }
+    return new Condition(
+        List.of(term),
+        Collections.nCopies(values.length, column),
+        Collections.unmodifiableList(Arrays.asList(values.clone())),
+        -1);
+  }
+
+  /**
+   * Joins two lists into a new, unmodifiable list.
+   *
+   * @param first First list.
+   * @param second Second list.
+   * @param <T> Type of the items.
+   * @return Joined list.
+   */
+  private static <T> List<T> concat(List<T> first, List<T> second) {
+    List<T> out = new ArrayList<>(first.size() + second.size());
+    out.addAll(first);
+    out.addAll(second);
+    return Collections.unmodifiableList(out);
+  }
+
+  /**
+   * Writes a value as a SQL literal.
+   *
+   * @param value Value to write.
+   * @return Literal.
+   */
+  private static String literal(Object value) {
+    if (value instanceof Number) {
+      return value.toString();
+    }
+    return "'" + value.toString().replace("'", "''") + "'";
+  }
+}
@@ -0,0 +1,504 @@
+package com.erliapp.utilities.database;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Bounded JDBC Connection Pool. Keeps connections open between queries, so a query does not pay
+ * for a new connection (and the handshake that comes with it) every time it runs.
+ */
+class ConnectionPool {
+
+  /** Opens a new physical connection for the pool. */
+  interface ConnectionFactory {
+
+    /**
+     * Opens a connection.
+     *
+     * @return A new Connection.
+     * @throws SQLException If the connection could not be opened.
+     */
+    Connection connect() throws SQLException;
+  }
+
+  /**
+   * Work to run with a borrowed connection.
+   *
+   * @param <T> Result type.
+   */
+  interface SqlWork<T> {
+
+    /**
+     * Runs the work.
+     *
+     * @param connection Borrowed connection.
+     * @return Result of the work.
+     * @throws SQLException If the work fails.
+     */
+    T run(PooledConnection connection) throws SQLException;
+  }
+
+  /**
+   * A connection owned by the pool. Keeps its own cache of prepared statements, since a prepared
+   * statement belongs to the connection that prepared it.
+   */
+  class PooledConnection {
+
+    private final Connection connection;
+    private final long createdAt;
+    private long lastUsed;
+    private final LinkedHashMap<StatementKey, PreparedStatement> statements;
+
+    private PooledConnection(Connection connection) {
+      this.connection = connection;
+      this.createdAt = System.nanoTime();
+      this.lastUsed = createdAt;
+      this.statements = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<StatementKey, PreparedStatement> eldest) {
+          if (size() > statementCacheSize) {
+            closeQuietly(eldest.getValue());
+            return true;
+          }
+          return false;
+        }
+      };
+    }
+
+    /**
+     * Gets the underlying JDBC connection.
+     *
+     * @return JDBC Connection.
+     */
+    Connection getConnection() {
+      return connection;
+    }
+
+    /**
+     * Gets a prepared statement from this connection's cache, preparing it if it isn't cached. The
+     * statement belongs to the cache, and must not be closed by the caller.
+     *
+     * @param key Shape of the statement.
+     * @param query Builds the query, only called if the statement isn't cached.
+     * @return Prepared statement.
+     * @throws SQLException If the statement could not be prepared.
+     */
+    PreparedStatement prepare(StatementKey key, Supplier<String> query) throws SQLException {
+      PreparedStatement stmt = statements.get(key);
+      if (stmt != null) {
+        statementHits.increment();
+        return stmt;
+      }
+      statementMisses.increment();
+      stmt = connection.prepareStatement(query.get());
+      statements.put(key.copy(), stmt);
+      return stmt;
+    }
+
+    /**
+     * Closes a statement, ignoring any errors.
+     *
+     * @param stmt Statement to close.
+     */
+    private void closeQuietly(PreparedStatement stmt) {
+      try {
+        stmt.close();
+      } catch (SQLException ignored) {
+        // Statement is being thrown away anyway.
+      }
+    }
+
+    /** Closes the underlying connection, ignoring any errors. */
+    private void closeQuietly() {
+      try {
+        connection.close();
+      } catch (SQLException ignored) {
+        // Connection is being thrown away anyway.
+      }
+    }
+  }
+
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+  // A connection used this recently is assumed to still work, and isn't validated again.
+  private static final long VALIDATION_SKIP_NANOS = TimeUnit.MILLISECONDS.toNanos(500);
+
+  private final ConnectionFactory factory;
+  private final int minSize;
+  private final int maxSize;
+  private final long idleTimeoutNanos;
+  private final long maxLifetimeNanos;
+  private final long borrowTimeoutNanos;
+  private final boolean validate;
+  private final int statementCacheSize;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition available = lock.newCondition();
+  private final ArrayDeque<PooledConnection> idle = new ArrayDeque<>();
+  private int total = 0;
+  private int active = 0;
+  private boolean closed = false;
+
+  private final LongAdder borrowCount = new LongAdder();
+  private final LongAdder waitNanos = new LongAdder();
+  private final LongAdder statementHits = new LongAdder();
+  private final LongAdder statementMisses = new LongAdder();
+
+  /**
+   * Constructor. Reads the pool settings set through {@link DatabaseBuilder}.
+   *
+   * @param factory Opens new connections.
+   * @param prop Database Configuration.
+   */
+  ConnectionPool(ConnectionFactory factory, PropertiesEx prop) {
+    this.factory = factory;
+    this.minSize = Integer.parseInt(prop.getProperty("poolMinSize", "1"));
+    this.maxSize = Integer.parseInt(prop.getProperty("poolMaxSize", "10"));
+    this.idleTimeoutNanos = millisProperty(prop, "poolIdleTimeout", "600000");
+    this.maxLifetimeNanos = millisProperty(prop, "poolMaxLifetime", "1800000");
+    this.borrowTimeoutNanos = millisProperty(prop, "poolBorrowTimeout", "30000");
+    this.validate = Boolean.parseBoolean(prop.getProperty("poolValidation", "true"));
+    this.statementCacheSize = Integer.parseInt(prop.getProperty("statementCacheSize", "64"));
+
+    if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+      throw new IllegalArgumentException("Pool sizes must satisfy 0 <= min <= max and max >= 1.");
+    }
+    if (statementCacheSize < 1) {
+      throw new IllegalArgumentException("Statement cache size must be at least 1.");
+    }
+  }
+
+  /**
+   * Reads a duration in milliseconds from the configuration.
+   *
+   * @param prop Database Configuration.
+   * @param key Property to read.
+   * @param defaultValue Value to use if the property is not set.
+   * @return Duration in nanoseconds.
+   */
+  private static long millisProperty(PropertiesEx prop, String key, String defaultValue) {
+    return TimeUnit.MILLISECONDS.toNanos(Long.parseLong(prop.getProperty(key, defaultValue)));
+  }
+
+  /**
+   * Opens connections until the pool holds its minimum size.
+   *
+   * @throws SQLException If a connection could not be opened.
+   */
+  void fill() throws SQLException {
+    while (true) {
+      lock.lock();
+      try {
+        if (closed || total >= minSize) {
+          return;
+        }
+        total++;
+      } finally {
+        lock.unlock();
+      }
+
+      PooledConnection pooled;
+      try {
+        pooled = new PooledConnection(factory.connect());
+      } catch (SQLException e) {
+        releaseSlot();
+        throw e;
+      }
+
+      lock.lock();
+      try {
+        idle.push(pooled);
+        available.signal();
+      } finally {
+        lock.unlock();
+      }
+    }
+  }
+
+  /**
+   * Borrows a connection, opening a new one if none are idle and the pool is not full. Waits for a
+   * connection to be released if the pool is full. Idle connections that have been unused for too
+   * long are closed first, so an idle pool shrinks back to its minimum size.
+   *
+   * @return A connection that must be handed back with {@link #release(PooledConnection, boolean)}.
+   * @throws SQLException If no connection could be obtained.
+   */
+  PooledConnection borrow() throws SQLException {
+    long start = System.nanoTime();
+    List<PooledConnection> expired = new ArrayList<>();
+    try {
+      while (true) {
+        PooledConnection pooled = take(start + borrowTimeoutNanos, expired);
+        if (pooled == null) {
+          try {
+            return new PooledConnection(factory.connect());
+          } catch (SQLException e) {
+            dropBorrowed();
+            // Mark it as a connection failure, so callers can tell it apart from a bad statement.
+            if (e instanceof SQLNonTransientConnectionException) {
+              throw e;
+            }
+            throw new SQLNonTransientConnectionException(
+                e.getMessage(), e.getSQLState() == null ? "08001" : e.getSQLState(),
+                e.getErrorCode(), e);
+          }
+        }
+        if (isUsable(pooled, System.nanoTime())) {
+          return pooled;
+        }
+        discard(pooled);
+      }
+    } finally {
+      borrowCount.increment();
+      waitNanos.add(System.nanoTime() - start);
+      for (PooledConnection connection : expired) {
+        connection.closeQuietly();
+      }
+    }
+  }
+
+  /**
+   * Hands a connection back to the pool.
+   *
+   * @param pooled Connection to hand back.
+   * @param failed {@code true} if the work using the connection threw an error. The connection is
+   *     then checked before being reused.
+   */
+  void release(PooledConnection pooled, boolean failed) {
+    long now = System.nanoTime();
+    boolean keep = now - pooled.createdAt < maxLifetimeNanos;
+    try {
+      Connection connection = pooled.connection;
+      if (keep && connection.isClosed()) {
+        keep = false;
+      }
+      if (keep && failed) {
+        keep = connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+      }
+      if (keep && !connection.getAutoCommit()) {
+        connection.rollback();
+        connection.setAutoCommit(true);
+      }
+    } catch (SQLException e) {
+      keep = false;
+    }
+
+    List<PooledConnection> expired;
+    lock.lock();
+    try {
+      active--;
+      if (!keep || closed) {
+        total--;
+        available.signal();
+        expired = List.of(pooled);
+      } else {
+        pooled.lastUsed = now;
+        idle.push(pooled);
+        available.signal();
+        expired = evictIdle(now);
+      }
+    } finally {
+      lock.unlock();
+    }
+    for (PooledConnection connection : expired) {
+      connection.closeQuietly();
+    }
+  }
+
+  /**
+   * Borrows a connection, runs some work with it, and hands it back.
+   *
+   * @param work Work to run.
+   * @param <T> Result type.
+   * @return Result of the work.
+   * @throws SQLException If no connection could be obtained, or the work fails.
+   */
+  <T> T withConnection(SqlWork<T> work) throws SQLException {
+    PooledConnection pooled = borrow();
+    boolean failed = true;
+    try {
+      T out = work.run(pooled);
+      failed = false;
+      return out;
+    } finally {
+      release(pooled, failed);
+    }
+  }
+
+  /**
+   * Gets the current state of the pool.
+   *
+   * @return Pool statistics.
+   */
+  PoolStats getStats() {
+    lock.lock();
+    try {
+      return new PoolStats(
+          active,
+          idle.size(),
+          maxSize,
+          borrowCount.sum(),
+          waitNanos.sum(),
+          statementHits.sum(),
+          statementMisses.sum()
+      );
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Closes all idle connections. Borrowed connections are closed once they are handed back. */
+  void close() {
+    List<PooledConnection> drained;
+    lock.lock();
+    try {
+      closed = true;
+      drained = new ArrayList<>(idle);
+      total -= idle.size();
+      idle.clear();
+      available.signalAll();
+    } finally {
+      lock.unlock();
+    }
+    for (PooledConnection pooled : drained) {
+      pooled.closeQuietly();
+    }
+  }
+
+  /**
+   * Takes an idle connection, or reserves a slot for a new one.
+   *
+   * @param deadline {@link System#nanoTime()} to stop waiting at.
+   * @param expired Collects idle connections that were evicted, to close once the lock is released.
+   * @return An idle connection, or {@code null} if the caller should open a new connection.
+   * @throws SQLException If the pool is closed or the wait times out.
+   */
+  private PooledConnection take(long deadline, List<PooledConnection> expired)
+      throws SQLException {
+    lock.lock();
+    try {
+      while (true) {
+        if (closed) {
+          throw new SQLException("Connection pool is closed.");
+        }
+        expired.addAll(evictIdle(System.nanoTime()));
+        PooledConnection pooled = idle.poll();
+        if (pooled != null) {
+          active++;
+          return pooled;
+        }
+        if (total < maxSize) {
+          total++;
+          active++;
+          return null;
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+          throw new SQLTimeoutException("Timed out waiting for a pooled connection.");
+        }
+        try {
+          available.awaitNanos(remaining);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+          throw new SQLException("Interrupted waiting for a pooled connection.", e);
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Checks if an idle connection can still be handed out. With validation on, connections are
+   * only validated if they have been idle for more than 500 milliseconds.
+   *
+   * @param pooled Connection to check.
+   * @param now Current {@link System#nanoTime()}.
+   * @return {@code true} if the connection can be used.
+   */
+  private boolean isUsable(PooledConnection pooled, long now) {
+    if (now - pooled.createdAt >= maxLifetimeNanos) {
+      return false;
+    }
+    try {
+      if (validate && now - pooled.lastUsed >= VALIDATION_SKIP_NANOS) {
+        return pooled.connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+      }
+      return !pooled.connection.isClosed();
+    } catch (SQLException e) {
+      return false;
+    }
+  }
+
+  /**
+   * Closes a borrowed connection, and gives its slot back to the pool.
+   *
+   * @param pooled Connection to throw away.
+   */
+  private void discard(PooledConnection pooled) {
+    pooled.closeQuietly();
+    dropBorrowed();
+  }
+
+  /** Gives the slot of a borrowed connection that was never handed back to the pool. */
+  private void dropBorrowed() {
+    lock.lock();
+    try {
+      active--;
+      total--;
+      available.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Gives a reserved connection slot back to the pool. */
+  private void releaseSlot() {
+    lock.lock();
+    try {
+      total--;
+      available.signal();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Removes idle connections that have been unused for too long, keeping the minimum size. Must be
+   * called while holding the lock.
+   *
+   * @param now Current {@link System#nanoTime()}.
+   * @return Connections to close once the lock is released.
+   */
+  private List<PooledConnection> evictIdle(long now) {
+    if (idle.isEmpty() || now - idle.peekLast().lastUsed < idleTimeoutNanos) {
+      return List.of();
+    }
+    List<PooledConnection> expired = new ArrayList<>();
+    Iterator<PooledConnection> oldest = idle.descendingIterator();
+    while (oldest.hasNext() && total > minSize) {
+      PooledConnection pooled = oldest.next();
+      if (now - pooled.lastUsed < idleTimeoutNanos) {
+        break;
+      }
+      oldest.remove();
+      total--;
+      expired.add(pooled);
+    }
+    return expired;
+  }
+}
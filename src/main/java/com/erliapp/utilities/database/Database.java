@@ -1,7 +1,10 @@
 package com.erliapp.utilities.database;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 /** Database interface. Allows an application to access data from an external source */
 public interface Database {
@@ -16,12 +19,100 @@ public interface Database {
    */
   DatabaseSelection select(String[] selecting, String database, String where);
 
+  /**
+   * Makes a database selection, with the values of the WHERE statement bound to placeholders
+   * instead of written into the query. Selections with the same shape of condition share one
+   * prepared statement. By default, the values are written into the query as literals.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param condition Typed WHERE statement.
+   * @return DatabaseSelection Data.
+   */
+  default DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    return select(selecting, database, condition.toWhere());
+  }
+
+  /**
+   * Makes a database selection, reading rows lazily as the stream is consumed instead of loading
+   * the whole result into memory. The stream holds database resources until it is closed, so it
+   * should be used in a try-with-resources block.
+   *
+   * <p>By default, the whole result is selected first, and then streamed.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return Stream of rows, each mapping column names to values.
+   */
+  default Stream<Map<String, Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    return select(selecting, database, where).getData().stream();
+  }
+
+  /**
+   * Makes a database selection, storing each column in a single primitive array instead of a map
+   * per row. Uses much less memory than {@link #select(String[], String, String)} for large results.
+   *
+   * <p>By default, the rows are selected first, and then copied into columns, so this saves no
+   * memory while selecting.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return ColumnarSelection Data.
+   */
+  default ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+    return DatabaseUtil.toColumnar(selecting, select(selecting, database, where));
+  }
+
+  /**
+   * Selects a page of rows whose id lies in a range, in order of id. Paging this way, by id
+   * instead of by OFFSET, lets every page seek straight to its first row through the index. To
+   * read the next page, call this again with {@code fromId} set to one more than the last id read,
+   * until a page comes back with fewer than {@code pageSize} rows.
+   *
+   * <p>With Snowflake ids, {@code Snowflake.firstIdAt} and {@code Snowflake.lastIdAt} turn a time
+   * window into an id range.
+   *
+   * @param selecting String array of items to select. The id column is added if it is missing.
+   * @param database Database to select from.
+   * @param idColumn Column holding the ids. It should be indexed, such as the primary key.
+   * @param fromId Smallest id to select.
+   * @param toId Largest id to select.
+   * @param pageSize Most rows to select.
+   * @return DatabaseSelection Data, ordered by id.
+   * @throws IllegalArgumentException if the page size is less than one.
+   */
+  default DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be at least 1!");
+    }
+    if (fromId > toId) {
+      return new DatabaseSelection();
+    }
+    return select(DatabaseUtil.withColumn(selecting, idColumn), database,
+        idColumn + " >= " + fromId + " AND " + idColumn + " <= " + toId
+            + " ORDER BY " + idColumn + " LIMIT " + pageSize);
+  }
+
   /**
    * Runs a blank query.
    * @param query Query to run.
    */
   void update(String query);
 
+  /**
+   * Runs an UPDATE statement with a condition, and reports whether it applied. In SQL, it applied
+   * if it changed at least one row. In CQL, the condition must be an {@code IF} clause, so the
+   * update runs as a lightweight transaction.
+   *
+   * @param query UPDATE statement to run.
+   * @return {@code true} if the update applied.
+   */
+  boolean tryUpdate(String query);
+
 
   /**
    * Runs an INSERT statement
@@ -31,6 +122,91 @@ public interface Database {
    */
   void insert(String database, String[] inserting, Object... values);
 
+  /**
+   * Runs an INSERT statement, unless a row with the same primary key already exists. Checking and
+   * inserting is a single atomic step in the database, such as {@code INSERT OR IGNORE} or
+   * {@code IF NOT EXISTS}, so of many callers inserting the same key at once, only one succeeds.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param values Values being inserted.
+   * @return {@code true} if the row was inserted, {@code false} if it already existed.
+   */
+  boolean insertIfAbsent(String database, String[] inserting, Object... values);
+
+  /**
+   * Inserts many rows into the same columns, in batches of a given size.
+   * By default, this runs one INSERT statement per row.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param rows Values for each row being inserted, in the same order as {@code inserting}.
+   * @param batchSize Maximum number of rows per batch.
+   * @return Number of rows written by each batch.
+   * @throws IllegalArgumentException if the batch size is less than one.
+   */
+  default int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1!");
+    }
+    List<Integer> counts = new ArrayList<>();
+    int inBatch = 0;
+    for (Object[] row : rows) {
+      insert(database, inserting, row);
+      inBatch++;
+      if (inBatch == batchSize) {
+        counts.add(inBatch);
+        inBatch = 0;
+      }
+    }
+    if (inBatch > 0) {
+      counts.add(inBatch);
+    }
+    return counts.stream().mapToInt(Integer::intValue).toArray();
+  }
+
+  /**
+   * Inserts many rows into the same columns, using the database's configured batch size.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param rows Values for each row being inserted, in the same order as {@code inserting}.
+   * @return Number of rows written by each batch.
+   */
+  default int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows) {
+    return insertBatch(database, inserting, rows, DatabaseUtil.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Registers a listener for writes that are committed after the call that made them returned,
+   * such as write-behind inserts, so anything holding on to old results can drop them. Databases
+   * that commit every write before returning never call it, which is the default.
+   *
+   * @param listener Called with the name of each table written to, once the write is committed.
+   */
+  default void addCommitListener(Consumer<String> listener) {
+  }
+
+  /**
+   * Checks if queries to this database are written in CQL rather than SQL. Databases that wrap
+   * others answer for the databases they wrap.
+   *
+   * @return {@code true} for CQL, {@code false} for SQL, which is the default.
+   */
+  default boolean isCql() {
+    return false;
+  }
+
+  /**
+   * Gets the state of the database's connection pool.
+   *
+   * @return Pool statistics, or {@code null} if the database does not pool connections itself.
+   */
+  default PoolStats getPoolStats() {
+    return null;
+  }
+
   /**
    * Closes a database connection.
    */
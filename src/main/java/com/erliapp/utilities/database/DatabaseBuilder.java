@@ -4,7 +4,9 @@ import com.erliapp.utilities.PropertiesEx;
 import java.net.UnknownHostException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.LinkedHashMap;
+import java.util.List;
 
 /**
  * Database Builder. A Utility to create a Database with proper formatting.
@@ -13,6 +15,7 @@ import java.util.LinkedHashMap;
 public class DatabaseBuilder {
 
   private LinkedHashMap<String, LinkedHashMap<String, String>> setup;
+  private LinkedHashMap<String, List<String>> partitionKeys;
   private PropertiesEx properties;
 
   private static final String[] dataTypes = {"BIGINT", "TEXT", "DOUBLE", "UUID"};
@@ -35,6 +38,7 @@ public class DatabaseBuilder {
    */
   public DatabaseBuilder(PropertiesEx properties) {
     setup = new LinkedHashMap<>();
+    partitionKeys = new LinkedHashMap<>();
     this.properties = properties;
 
     if (properties.containsKey("cqlkeyspace")) {
@@ -85,6 +89,39 @@ public class DatabaseBuilder {
     throw new IllegalArgumentException("Data Type is invalid!");
   }
 
+  /**
+   * Marks a column as part of a table's partition key. Call once per column, in the order of the
+   * partition key. Cassandra uses this to group batched inserts by partition.
+   *
+   * @param table Table within database to use.
+   * @param key Name of column. Must already be added with {@link #addDatabaseValue}.
+   * @throws IllegalArgumentException if the column hasn't been added to the table.
+   */
+  public void addPartitionKey(String table, String key) throws IllegalArgumentException {
+    if (!setup.containsKey(table) || !setup.get(table).containsKey(key)) {
+      throw new IllegalArgumentException("Partition key must be a column of the table!");
+    }
+    partitionKeys.computeIfAbsent(table, t -> new ArrayList<>()).add(key);
+  }
+
+  /**
+   * Marks a column as part of a table's primary key. Call once per column, in the order of the
+   * primary key. SQL Databases add the key when they create the table, which lets
+   * {@link Database#insertIfAbsent} detect existing rows. Cassandra tables are not created by the
+   * builder, so their keys must be set in the table itself.
+   *
+   * @param table Table within database to use.
+   * @param key Name of column. Must already be added with {@link #addDatabaseValue}.
+   * @throws IllegalArgumentException if the column hasn't been added to the table.
+   */
+  public void addPrimaryKey(String table, String key) throws IllegalArgumentException {
+    if (!setup.containsKey(table) || !setup.get(table).containsKey(key)) {
+      throw new IllegalArgumentException("Primary key must be a column of the table!");
+    }
+    String existing = properties.getProperty("primaryKey." + table);
+    properties.setProperty("primaryKey." + table, existing == null ? key : existing + ", " + key);
+  }
+
   /**
    * Sets a Database's Type.
    *
@@ -181,6 +218,56 @@ public class DatabaseBuilder {
     properties.setProperty("cqlauth", "" + useAuth);
   }
 
+  /**
+   * Sets how many rows {@link Database#insertBatch(String, String[], Iterable)} sends per batch.
+   *
+   * @param batchSize Rows per batch. Defaults to {@code 500}.
+   * @throws IllegalArgumentException if the batch size is less than one.
+   */
+  public void setBatchSize(int batchSize) throws IllegalArgumentException {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1!");
+    }
+    properties.setProperty("batchSize", "" + batchSize);
+  }
+
+  /**
+   * Sets how many rows {@link Database#selectStream(String[], String, String)} fetches from the
+   * database at a time.
+   *
+   * @param fetchSize Rows per fetch. Defaults to {@code 1000}.
+   * @throws IllegalArgumentException if the fetch size is less than one.
+   */
+  public void setFetchSize(int fetchSize) throws IllegalArgumentException {
+    if (fetchSize < 1) {
+      throw new IllegalArgumentException("Fetch size must be at least 1!");
+    }
+    properties.setProperty("fetchSize", "" + fetchSize);
+  }
+
+  /**
+   * Sets how many requests a Cassandra Database may have in flight at once when batching.
+   *
+   * @param maxInFlight Maximum concurrent requests. Defaults to {@code 64}.
+   * @throws IllegalArgumentException if the value is less than one.
+   */
+  public void setMaxInFlight(int maxInFlight) throws IllegalArgumentException {
+    if (maxInFlight < 1) {
+      throw new IllegalArgumentException("Max in-flight requests must be at least 1!");
+    }
+    properties.setProperty("cqlMaxInFlight", "" + maxInFlight);
+  }
+
+  /**
+   * Sets whether a Cassandra Database prepares every table's insert statement while it is built,
+   * instead of on the first insert into each table.
+   *
+   * @param prepare {@code true} to prepare inserts eagerly. Defaults to {@code false}.
+   */
+  public void setPrepareOnBuild(boolean prepare) {
+    properties.setProperty("cqlPrepareOnBuild", "" + prepare);
+  }
+
   /**
    * Sets the path for SQLite to use, instead of the default directory.
    *
@@ -189,6 +276,273 @@ public class DatabaseBuilder {
   public void setSqlitePath(Path path) {
     this.sqlitePath = path;
   }
+
+  /**
+   * Sets whether SQLite uses its performance profile: WAL journaling, {@code synchronous=NORMAL},
+   * memory mapped reads, a larger page cache, and in-memory temporary tables. Writes then use a
+   * single dedicated connection, and selects use the pool with read-only connections, so they don't
+   * block on writes. The last few commits may be lost on power failure, but never corrupted.
+   *
+   * @param performance {@code true} to use the performance profile. Defaults to {@code false}.
+   */
+  public void setSqlitePerformance(boolean performance) {
+    properties.setProperty("sqlitePerformance", "" + performance);
+  }
+
+  /**
+   * Sets how much of a SQLite database file may be memory mapped, with the performance profile.
+   *
+   * @param bytes Maximum mapped size in bytes. Defaults to 256 MiB.
+   * @throws IllegalArgumentException if the size is negative.
+   */
+  public void setSqliteMmapSize(long bytes) throws IllegalArgumentException {
+    if (bytes < 0) {
+      throw new IllegalArgumentException("SQLite mmap size can't be negative!");
+    }
+    properties.setProperty("sqliteMmapSize", "" + bytes);
+  }
+
+  /**
+   * Sets the page cache size of each SQLite connection, with the performance profile. Follows
+   * SQLite's {@code cache_size} rules: positive values are pages, negative values are KiB.
+   *
+   * @param cacheSize Cache size. Defaults to {@code -65536}, which is 64 MiB.
+   */
+  public void setSqliteCacheSize(long cacheSize) {
+    properties.setProperty("sqliteCacheSize", "" + cacheSize);
+  }
+
+  /**
+   * Sets how long a SQLite connection waits for a lock held by another connection before failing
+   * with {@code SQLITE_BUSY}, with the performance profile.
+   *
+   * @param millis Busy timeout in milliseconds. Defaults to 30 seconds.
+   * @throws IllegalArgumentException if the timeout is negative.
+   */
+  public void setSqliteBusyTimeout(long millis) throws IllegalArgumentException {
+    if (millis < 0) {
+      throw new IllegalArgumentException("SQLite busy timeout can't be negative!");
+    }
+    properties.setProperty("sqliteBusyTimeout", "" + millis);
+  }
+
+  /**
+   * Sets the number of connections a SQL Database keeps open, even when idle.
+   *
+   * @param minSize Minimum pool size. Defaults to {@code 1}.
+   * @throws IllegalArgumentException if the size is negative.
+   */
+  public void setPoolMinSize(int minSize) throws IllegalArgumentException {
+    if (minSize < 0) {
+      throw new IllegalArgumentException("Minimum pool size can't be negative!");
+    }
+    properties.setProperty("poolMinSize", "" + minSize);
+  }
+
+  /**
+   * Sets the maximum number of connections a SQL Database may have open at once.
+   *
+   * @param maxSize Maximum pool size. Defaults to {@code 10}.
+   * @throws IllegalArgumentException if the size is less than one.
+   */
+  public void setPoolMaxSize(int maxSize) throws IllegalArgumentException {
+    if (maxSize < 1) {
+      throw new IllegalArgumentException("Maximum pool size must be at least 1!");
+    }
+    properties.setProperty("poolMaxSize", "" + maxSize);
+  }
+
+  /**
+   * Sets how long a pooled connection may sit unused before it is closed.
+   *
+   * @param millis Idle timeout in milliseconds. Defaults to 10 minutes.
+   */
+  public void setPoolIdleTimeout(long millis) {
+    properties.setProperty("poolIdleTimeout", "" + millis);
+  }
+
+  /**
+   * Sets how long a pooled connection may live before it is replaced with a new one.
+   *
+   * @param millis Maximum lifetime in milliseconds. Defaults to 30 minutes.
+   */
+  public void setPoolMaxLifetime(long millis) {
+    properties.setProperty("poolMaxLifetime", "" + millis);
+  }
+
+  /**
+   * Sets how long a query waits for a free connection when the pool is full.
+   *
+   * @param millis Borrow timeout in milliseconds. Defaults to 30 seconds.
+   */
+  public void setPoolBorrowTimeout(long millis) {
+    properties.setProperty("poolBorrowTimeout", "" + millis);
+  }
+
+  /**
+   * Sets whether pooled connections are checked before being handed out. Connections used in the
+   * last 500 milliseconds are not checked again.
+   *
+   * @param validation {@code true} to validate connections. Defaults to {@code true}.
+   */
+  public void setPoolValidation(boolean validation) {
+    properties.setProperty("poolValidation", "" + validation);
+  }
+
+  /**
+   * Sets how many prepared statements each pooled connection keeps cached. The least recently used
+   * statement is closed when the cache is full.
+   *
+   * @param size Statement cache size per connection. Defaults to {@code 64}.
+   * @throws IllegalArgumentException if the size is less than one.
+   */
+  public void setStatementCacheSize(int size) throws IllegalArgumentException {
+    if (size < 1) {
+      throw new IllegalArgumentException("Statement cache size must be at least 1!");
+    }
+    properties.setProperty("statementCacheSize", "" + size);
+  }
+
+  /**
+   * Sets whether a SQL Database buffers inserts and commits them in groups from a single writer
+   * thread, instead of committing every row. Inserted rows may not be visible to selects until
+   * they are written, see {@link SqliteDatabase#flush()}.
+   *
+   * @param writeBehind {@code true} to buffer inserts. Defaults to {@code false}.
+   */
+  public void setWriteBehind(boolean writeBehind) {
+    properties.setProperty("writeBehind", "" + writeBehind);
+  }
+
+  /**
+   * Sets the most rows a write-behind group commits in one transaction.
+   *
+   * @param rows Rows per group. Defaults to the batch size.
+   * @throws IllegalArgumentException if the number of rows is less than one.
+   */
+  public void setWriteBehindRows(int rows) throws IllegalArgumentException {
+    if (rows < 1) {
+      throw new IllegalArgumentException("Write-behind rows must be at least 1!");
+    }
+    properties.setProperty("writeBehindRows", "" + rows);
+  }
+
+  /**
+   * Sets the longest a buffered row waits before its group is committed.
+   *
+   * @param millis Delay in milliseconds. Defaults to {@code 50}.
+   * @throws IllegalArgumentException if the delay is negative.
+   */
+  public void setWriteBehindMillis(long millis) throws IllegalArgumentException {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Write-behind delay can't be negative!");
+    }
+    properties.setProperty("writeBehindMillis", "" + millis);
+  }
+
+  /**
+   * Sets how many rows may wait to be written before inserts block.
+   *
+   * @param size Queue size. Defaults to {@code 10000}.
+   * @throws IllegalArgumentException if the size is less than one.
+   */
+  public void setWriteBehindQueueSize(int size) throws IllegalArgumentException {
+    if (size < 1) {
+      throw new IllegalArgumentException("Write-behind queue size must be at least 1!");
+    }
+    properties.setProperty("writeBehindQueueSize", "" + size);
+  }
+
+  /**
+   * Sets whether selections are cached in front of the database, see {@link CachingDatabase}.
+   *
+   * @param cache {@code true} to cache selections. Defaults to {@code false}.
+   */
+  public void setCache(boolean cache) {
+    properties.setProperty("cache", "" + cache);
+  }
+
+  /**
+   * Sets the most selection results the cache holds.
+   *
+   * @param maxEntries Maximum cached results. Defaults to {@code 10000}.
+   * @throws IllegalArgumentException if the value is less than one.
+   */
+  public void setCacheMaxEntries(int maxEntries) throws IllegalArgumentException {
+    if (maxEntries < 1) {
+      throw new IllegalArgumentException("Cache max entries must be at least 1!");
+    }
+    properties.setProperty("cacheMaxEntries", "" + maxEntries);
+  }
+
+  /**
+   * Sets the most memory the cache's results may use, by estimate.
+   *
+   * @param maxBytes Maximum estimated size in bytes. Defaults to 64 MiB.
+   * @throws IllegalArgumentException if the value is less than one.
+   */
+  public void setCacheMaxBytes(long maxBytes) throws IllegalArgumentException {
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("Cache max bytes must be at least 1!");
+    }
+    properties.setProperty("cacheMaxBytes", "" + maxBytes);
+  }
+
+  /**
+   * Sets how long a cached result is used before it is loaded again.
+   *
+   * @param millis Time to live in milliseconds, or {@code 0} to not cache. Defaults to 1 minute.
+   * @throws IllegalArgumentException if the time is negative.
+   */
+  public void setCacheTtl(long millis) throws IllegalArgumentException {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Cache time to live can't be negative!");
+    }
+    properties.setProperty("cacheTtl", "" + millis);
+  }
+
+  /**
+   * Sets how long a cached result of one table is used before it is loaded again.
+   *
+   * @param table Table within database to use.
+   * @param millis Time to live in milliseconds, or {@code 0} to not cache the table.
+   * @throws IllegalArgumentException if the table hasn't been added, or the time is negative.
+   */
+  public void setCacheTtl(String table, long millis) throws IllegalArgumentException {
+    if (!setup.containsKey(table)) {
+      throw new IllegalArgumentException("Table must be added before setting its cache!");
+    }
+    if (millis < 0) {
+      throw new IllegalArgumentException("Cache time to live can't be negative!");
+    }
+    properties.setProperty("cacheTtl." + table, "" + millis);
+  }
+
+  /**
+   * Sets how many threads an {@link AsyncDatabase} built with {@link #buildAsync()} uses to run
+   * queries on a SQL Database. Cassandra doesn't need any, as its driver is asynchronous.
+   *
+   * @param threads Number of threads. Defaults to the maximum pool size.
+   * @throws IllegalArgumentException if the number of threads is less than one.
+   */
+  public void setAsyncThreads(int threads) throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Async thread count must be at least 1!");
+    }
+    properties.setProperty("asyncThreads", "" + threads);
+  }
+
+  /**
+   * Sets whether an {@link AsyncDatabase} built with {@link #buildAsync()} runs each query on a
+   * SQL Database in its own virtual thread. Needs Java 21 or later, and falls back to the async
+   * thread count otherwise.
+   *
+   * @param virtual {@code true} to use virtual threads. Defaults to {@code false}.
+   */
+  public void setUseVirtualThreads(boolean virtual) {
+    properties.setProperty("asyncVirtualThreads", "" + virtual);
+  }
+
   /**
    * Takes a Database Configuration, and builds a new Database.
    *
@@ -220,7 +574,21 @@ public class DatabaseBuilder {
       throw new IllegalStateException("Setup must have a value.");
     }
 
+    if (Integer.parseInt(properties.getProperty("poolMinSize", "1"))
+        > Integer.parseInt(properties.getProperty("poolMaxSize", "10"))) {
+      throw new IllegalStateException("Minimum pool size can't be larger than the maximum.");
+    }
+
     String type = properties.getProperty("databaseType");
+    String replicas = properties.getProperty("replicas");
+    if (replicas != null && type.equals("cassandra")) {
+      throw new IllegalStateException("Replicas are only supported for SQL Databases!");
+    }
+    if (replicas != null
+        && Long.parseLong(properties.getProperty("replicaMaxLag", "0")) > 0
+        && !setup.containsKey(ReplicatedDatabase.HEARTBEAT_TABLE)) {
+      ReplicatedDatabase.addHeartbeatTable(this);
+    }
 
     Database out;
     if (type.equals("cassandra")) {
@@ -229,7 +597,11 @@ public class DatabaseBuilder {
               && properties.containsKey("cqldatacenter")
               && properties.containsKey("cqlport")
       ) {
-        out = new CassandraDatabase(setup, properties);
+        CassandraDatabase temp = new CassandraDatabase(setup, partitionKeys, properties);
+        if (Boolean.parseBoolean(properties.getProperty("cqlPrepareOnBuild", "false"))) {
+          temp.prepareInserts();
+        }
+        out = temp;
       } else {
         throw new IllegalStateException(
             "Cassandra Database Requires a Contact, Datacenter, and Port!"
@@ -261,7 +633,193 @@ public class DatabaseBuilder {
     } else {
       throw new IllegalStateException("Database Type not allowed!");
     }
+
+    if (replicas != null) {
+      List<Database> replicaDatabases = new ArrayList<>();
+      for (String endpoint : replicas.split(",")) {
+        replicaDatabases.add(buildReplica(type, endpoint.trim()));
+      }
+      out = new ReplicatedDatabase(out, replicaDatabases, properties);
+    }
+
+    if (Boolean.parseBoolean(properties.getProperty("cache", "false"))) {
+      // Keeps the native asynchronous API of the database being cached, if it has one.
+      out = out instanceof AsyncDatabase
+          ? new AsyncCachingDatabase((AsyncDatabase) out, setup.keySet(), properties)
+          : new CachingDatabase(out, setup.keySet(), properties);
+    }
     return out;
   }
 
+  /**
+   * Builds a read replica, with the same settings as the primary.
+   *
+   * @param type Database type.
+   * @param endpoint Host and port, or SQLite directory.
+   * @return A new replica Database
+   * @throws UnknownHostException if the host of the replica can't be found.
+   */
+  private Database buildReplica(String type, String endpoint) throws UnknownHostException {
+    PropertiesEx replicaProperties = new PropertiesEx();
+    replicaProperties.putAll(properties);
+    if (type.equals("sqlite")) {
+      SqliteDatabase temp = new SqliteDatabase(setup, replicaProperties, Paths.get(endpoint));
+      temp.create();
+      return temp;
+    }
+
+    // Replicas get their tables from the primary, and may not allow creating them.
+    int split = endpoint.lastIndexOf(':');
+    if (split < 0) {
+      throw new IllegalStateException("Replica " + endpoint + " must be given as host:port!");
+    }
+    replicaProperties.setProperty("cqlcontact", endpoint.substring(0, split));
+    replicaProperties.setProperty("cqlport", endpoint.substring(split + 1));
+    boolean ssl = "true".equals(properties.getProperty("useSSL"));
+    if (type.equals("mysql")) {
+      return properties.containsKey("useSSL")
+          ? new SqlDatabase(setup, replicaProperties, ssl)
+          : new SqlDatabase(setup, replicaProperties);
+    }
+    return properties.containsKey("useSSL")
+        ? new MariaDBDatabase(setup, replicaProperties, ssl)
+        : new MariaDBDatabase(setup, replicaProperties);
+  }
+
+  /**
+   * Adds a read replica of a MariaDB or MySQL database. Selects are spread over the replicas, and
+   * writes go to the primary.
+   *
+   * @param contact Host of the replica, using the same keyspace and credentials as the primary.
+   * @param port Port of the replica.
+   */
+  public void addReplica(String contact, int port) {
+    addReplica(contact + ":" + port);
+  }
+
+  /**
+   * Adds a SQLite database file to use as a read replica, mostly for testing replica routing
+   * locally. SQLite doesn't replicate, so the files must be kept in sync some other way.
+   *
+   * @param path Directory of the replica, used like {@link #setSqlitePath(Path)}.
+   */
+  public void addReplica(Path path) {
+    addReplica(path.toString());
+  }
+
+  /**
+   * Adds a replica endpoint to the comma separated list.
+   *
+   * @param endpoint Host and port, or SQLite directory.
+   */
+  private void addReplica(String endpoint) {
+    String existing = properties.getProperty("replicas");
+    properties.setProperty("replicas", existing == null ? endpoint : existing + "," + endpoint);
+  }
+
+  /**
+   * Sets how far a replica may fall behind the primary before it is taken out of rotation. The
+   * lag is measured with a heartbeat table, which is added to the tables when this is set.
+   *
+   * @param millis Maximum lag in milliseconds, or {@code 0} to not measure lag. Defaults to
+   *     {@code 0}.
+   * @throws IllegalArgumentException if the lag is negative.
+   */
+  public void setReplicaMaxLag(long millis) throws IllegalArgumentException {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Replica lag can't be negative!");
+    }
+    properties.setProperty("replicaMaxLag", "" + millis);
+  }
+
+  /**
+   * Sets how often replica lag is checked, and how long a failed replica stays out of rotation.
+   *
+   * @param millis Check interval in milliseconds. Defaults to {@code 1000}.
+   * @throws IllegalArgumentException if the interval is less than one.
+   */
+  public void setReplicaCheckInterval(long millis) throws IllegalArgumentException {
+    if (millis < 1) {
+      throw new IllegalArgumentException("Replica check interval must be at least 1!");
+    }
+    properties.setProperty("replicaCheckInterval", "" + millis);
+  }
+
+  /**
+   * Sets how long a thread's selects go to the primary after it writes, so it reads its own
+   * writes even if the replicas haven't caught up.
+   *
+   * @param millis Window in milliseconds, or {@code 0} to always read from replicas. Defaults to
+   *     {@code 0}.
+   * @throws IllegalArgumentException if the window is negative.
+   */
+  public void setReadYourWrites(long millis) throws IllegalArgumentException {
+    if (millis < 0) {
+      throw new IllegalArgumentException("Read-your-writes window can't be negative!");
+    }
+    properties.setProperty("replicaReadYourWrites", "" + millis);
+  }
+
+  /**
+   * Sets the column a table is sharded by, for {@link #buildSharded(List)}. Tables without a shard
+   * key are kept whole on the first shard.
+   *
+   * @param table Table to shard.
+   * @param column Column whose value picks a row's shard, such as a Snowflake ID.
+   */
+  public void setShardKey(String table, String column) {
+    properties.setProperty("shardKey." + table, column);
+  }
+
+  /**
+   * Sets how many points each shard owns on the hash ring. More points spread rows more evenly.
+   *
+   * @param virtualNodes Points per shard.
+   * @throws IllegalArgumentException if the number of points is less than one.
+   */
+  public void setShardVirtualNodes(int virtualNodes) throws IllegalArgumentException {
+    if (virtualNodes < 1) {
+      throw new IllegalArgumentException("Virtual nodes per shard must be at least 1!");
+    }
+    properties.setProperty("shardVirtualNodes", "" + virtualNodes);
+  }
+
+  /**
+   * Builds a Database that spreads rows over several databases, using the shard keys of this
+   * configuration. Each shard is usually built by its own DatabaseBuilder with the same tables.
+   *
+   * @param shards Databases to spread rows over.
+   * @return A new ShardedDatabase
+   * @throws IllegalStateException if there are no shards.
+   */
+  public ShardedDatabase buildSharded(List<? extends Database> shards)
+      throws IllegalStateException {
+    if (shards.isEmpty()) {
+      throw new IllegalStateException("Sharding requires at least one shard!");
+    }
+    return new ShardedDatabase(shards, setup, properties);
+  }
+
+  /**
+   * Takes a Database Configuration, and builds a new Database that can also run queries
+   * asynchronously. Cassandra uses its driver's asynchronous API, even behind the cache, and SQL
+   * Databases run queries on a dedicated executor.
+   *
+   * @return A new AsyncDatabase
+   * @throws IllegalStateException if any configuration is invalid for usage.
+   * @throws UnknownHostException if the database can't connect to Cassandra.
+   */
+  public AsyncDatabase buildAsync() throws IllegalStateException, UnknownHostException {
+    Database database = build();
+    if (database instanceof AsyncDatabase) {
+      return (AsyncDatabase) database;
+    }
+    int threads = Integer.parseInt(properties.getProperty(
+        "asyncThreads", properties.getProperty("poolMaxSize", "10")));
+    boolean virtual =
+        Boolean.parseBoolean(properties.getProperty("asyncVirtualThreads", "false"));
+    return new ExecutorAsyncDatabase(
+        database, ExecutorAsyncDatabase.newExecutor(threads, virtual));
+  }
+
 }
@@ -1,8 +1,14 @@
 package com.erliapp.utilities.database;
 
+import java.util.Arrays;
+import java.util.Map;
+
 /** Database Utility Functions. */
 public class DatabaseUtil {
 
+  /** Number of rows per batch, when a batch size is not configured. */
+  public static final int DEFAULT_BATCH_SIZE = 500;
+
   /**
    * Creates Data to Insert.
    *
@@ -11,6 +17,18 @@ public class DatabaseUtil {
    * @return Insert Statment, with Formated Data.
    */
   protected static String setupInsertingData(String database, String[] inserting) {
+    return setupInsertingData("INSERT INTO ", database, inserting);
+  }
+
+  /**
+   * Creates Data to Insert, with a different start to the statement.
+   *
+   * @param insert Start of the statement, such as {@code INSERT OR IGNORE INTO }
+   * @param database Table to insert into
+   * @param inserting Columns inserting into
+   * @return Insert Statment, with Formated Data.
+   */
+  protected static String setupInsertingData(String insert, String database, String[] inserting) {
     StringBuilder selected = new StringBuilder();
     for (String item : inserting) {
       selected.append(item).append(", ");
@@ -21,6 +39,103 @@ public class DatabaseUtil {
     valueQuestion.append("?,".repeat(inserting.length));
     valueQuestion = new StringBuilder(valueQuestion.substring(0, valueQuestion.length() - 1));
 
-    return "INSERT INTO " + database + "(" + selected + ") VALUES(" + valueQuestion + ");";
+    return insert + database + "(" + selected + ") VALUES(" + valueQuestion + ");";
+  }
+
+  /**
+   * Adds a column to a list of columns, unless it is already there.
+   *
+   * @param columns Columns to add to
+   * @param column Column to add
+   * @return The same columns if they have the column, or a copy with it added at the end.
+   */
+  protected static String[] withColumn(String[] columns, String column) {
+    for (String item : columns) {
+      if (item.equalsIgnoreCase(column)) {
+        return columns;
+      }
+    }
+    String[] out = Arrays.copyOf(columns, columns.length + 1);
+    out[columns.length] = column;
+    return out;
+  }
+
+  /**
+   * Copies rows into a column-oriented selection. The type of each column is taken from its first
+   * value that isn't null, and columns holding only nulls are stored as {@code TEXT}.
+   *
+   * @param columns Columns to copy
+   * @param rows Rows to copy
+   * @return Columns of the rows.
+   */
+  protected static ColumnarSelection toColumnar(String[] columns, DatabaseSelection rows) {
+    ColumnType[] types = new ColumnType[columns.length];
+    for (int i = 0; i < columns.length; i++) {
+      types[i] = ColumnType.TEXT;
+      for (Map<String, Row<?>> row : rows.getData()) {
+        Row<?> value = row.get(columns[i]);
+        if (value != null && value.getItem() != null) {
+          types[i] = toColumnType(value.getTypeCode());
+          break;
+        }
+      }
+    }
+
+    ColumnarSelection out = new ColumnarSelection(columns, types);
+    for (Map<String, Row<?>> row : rows.getData()) {
+      out.addRow();
+      for (int i = 0; i < columns.length; i++) {
+        Row<?> value = row.get(columns[i]);
+        if (value == null || value.getItem() == null) {
+          out.setNull(i);
+          continue;
+        }
+        switch (types[i]) {
+          case BIGINT:
+            out.setLong(i, value.getLong());
+            break;
+          case DOUBLE:
+            out.setDouble(i, value.getDouble());
+            break;
+          case UUID:
+            out.setUuid(i, value.getUUID());
+            break;
+          default:
+            out.setString(i, value.getString());
+            break;
+        }
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Finds the column type that stores a type of value.
+   *
+   * @param type Type of value.
+   * @return Column type.
+   */
+  private static ColumnType toColumnType(Row.Type type) {
+    switch (type) {
+      case LONG:
+        return ColumnType.BIGINT;
+      case DOUBLE:
+        return ColumnType.DOUBLE;
+      case UUID:
+        return ColumnType.UUID;
+      default:
+        return ColumnType.TEXT;
+    }
+  }
+
+  /**
+   * Adds a parameter to a JDBC URL.
+   *
+   * @param url URL to add to
+   * @param parameter Parameter to add, as {@code key=value}
+   * @return URL with the parameter.
+   */
+  protected static String withParameter(String url, String parameter) {
+    return url + (url.contains("?") ? "&" : "?") + parameter;
   }
 }
@@ -0,0 +1,68 @@
+package com.erliapp.utilities.database;
+
+import java.util.UUID;
+
+/** Row holding a {@code double}, without boxing it. */
+public final class DoubleRow extends Row<Double> {
+
+  private static final DoubleRow ZERO = new DoubleRow(0.0);
+
+  private final double value;
+
+  /**
+   * Constructor.
+   *
+   * @param value Value to hold.
+   */
+  private DoubleRow(double value) {
+    super(Type.DOUBLE);
+    this.value = value;
+  }
+
+  /**
+   * Gets a Row holding a double, shared for positive zero.
+   *
+   * @param value Value to hold.
+   * @return Row holding the value.
+   */
+  public static DoubleRow of(double value) {
+    if (Double.doubleToRawLongBits(value) == 0L) {
+      return ZERO;
+    }
+    return new DoubleRow(value);
+  }
+
+  @Override
+  public Double getItem() {
+    return value;
+  }
+
+  @Override
+  public long getLong() {
+    return parseLong(getString());
+  }
+
+  @Override
+  public Double getDouble() {
+    return value;
+  }
+
+  /**
+   * Gets the value without boxing it.
+   *
+   * @return Value as a double.
+   */
+  public double getDoubleValue() {
+    return value;
+  }
+
+  @Override
+  public UUID getUUID() {
+    return null;
+  }
+
+  @Override
+  public String getString() {
+    return Double.toString(value);
+  }
+}
@@ -0,0 +1,194 @@
+package com.erliapp.utilities.database;
+
+import java.lang.reflect.Method;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Runs the queries of a blocking Database on a dedicated executor, so they can be used as an
+ * {@link AsyncDatabase}. Used for the JDBC databases, which have no asynchronous API of their own.
+ *
+ * <p>The executor either has a fixed number of threads, or starts a virtual thread per query on
+ * Java 21 and later. Either way, the number of queries actually running at once is still limited
+ * by the database's connection pool.
+ */
+public class ExecutorAsyncDatabase implements AsyncDatabase {
+
+  private final Database database;
+  private final ExecutorService executor;
+
+  /**
+   * Constructor. The executor is shut down when this database is closed.
+   *
+   * @param database Database to run queries on.
+   * @param executor Executor to run queries with.
+   */
+  public ExecutorAsyncDatabase(Database database, ExecutorService executor) {
+    this.database = database;
+    this.executor = executor;
+  }
+
+  /**
+   * Creates an executor for running queries.
+   *
+   * @param threads Number of threads, if not using virtual threads.
+   * @param virtual {@code true} to start a virtual thread per query. Falls back to a fixed number of
+   *     threads if virtual threads aren't supported by this Java version.
+   * @return New executor.
+   * @throws IllegalArgumentException if the number of threads is less than one.
+   */
+  public static ExecutorService newExecutor(int threads, boolean virtual)
+      throws IllegalArgumentException {
+    if (threads < 1) {
+      throw new IllegalArgumentException("Async thread count must be at least 1!");
+    }
+    if (virtual) {
+      ExecutorService out = newVirtualThreadExecutor();
+      if (out != null) {
+        return out;
+      }
+    }
+    AtomicInteger count = new AtomicInteger();
+    ThreadFactory factory = runnable -> {
+      Thread thread = new Thread(runnable, "database-async-" + count.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    };
+    return Executors.newFixedThreadPool(threads, factory);
+  }
+
+  /**
+   * Creates an executor that starts a virtual thread per task. Looked up reflectively, so this
+   * still compiles and runs on Java versions without virtual threads.
+   *
+   * @return New executor, or {@code null} if virtual threads aren't supported.
+   */
+  private static ExecutorService newVirtualThreadExecutor() {
+    try {
+      Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) method.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return null;
+    }
+  }
+
+  /**
+   * Gets the Database queries are run on.
+   *
+   * @return Wrapped Database.
+   */
+  public Database getDatabase() {
+    return database;
+  }
+
+  @Override
+  public CompletableFuture<DatabaseSelection> selectAsync(
+      String[] selecting, String database, String where) {
+    return CompletableFuture.supplyAsync(
+        () -> this.database.select(selecting, database, where), executor);
+  }
+
+  @Override
+  public CompletableFuture<Void> updateAsync(String query) {
+    return CompletableFuture.runAsync(() -> database.update(query), executor);
+  }
+
+  @Override
+  public CompletableFuture<Void> insertAsync(
+      String database, String[] inserting, Object... values) {
+    return CompletableFuture.runAsync(
+        () -> this.database.insert(database, inserting, values), executor);
+  }
+
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, String where) {
+    return this.database.select(selecting, database, where);
+  }
+
+  @Override
+  public Stream<Map<String, Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    return this.database.selectStream(selecting, database, where);
+  }
+
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    return this.database.select(selecting, database, condition);
+  }
+
+  @Override
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize) {
+    return this.database.selectRange(selecting, database, idColumn, fromId, toId, pageSize);
+  }
+
+  @Override
+  public ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+    return this.database.selectColumnar(selecting, database, where);
+  }
+
+  @Override
+  public void update(String query) {
+    database.update(query);
+  }
+
+  @Override
+  public boolean tryUpdate(String query) {
+    return database.tryUpdate(query);
+  }
+
+  @Override
+  public void insert(String database, String[] inserting, Object... values) {
+    this.database.insert(database, inserting, values);
+  }
+
+  @Override
+  public boolean insertIfAbsent(String database, String[] inserting, Object... values) {
+    return this.database.insertIfAbsent(database, inserting, values);
+  }
+
+  @Override
+  public int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize) {
+    return this.database.insertBatch(database, inserting, rows, batchSize);
+  }
+
+  @Override
+  public int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows) {
+    return this.database.insertBatch(database, inserting, rows);
+  }
+
+  @Override
+  public void addCommitListener(Consumer<String> listener) {
+    database.addCommitListener(listener);
+  }
+
+  @Override
+  public boolean isCql() {
+    return database.isCql();
+  }
+
+  @Override
+  public PoolStats getPoolStats() {
+    return database.getPoolStats();
+  }
+
+  /** Waits for queued queries to finish, then closes the wrapped Database. */
+  @Override
+  public void close() {
+    executor.shutdown();
+    try {
+      executor.awaitTermination(30, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    database.close();
+  }
+}
@@ -0,0 +1,67 @@
+package com.erliapp.utilities.database;
+
+import java.util.UUID;
+
+/** Row holding a {@code long}, without boxing it. */
+public final class LongRow extends Row<Long> {
+
+  private static final int CACHE_LOW = -128;
+  private static final int CACHE_HIGH = 1024;
+  private static final LongRow[] CACHE = new LongRow[CACHE_HIGH - CACHE_LOW + 1];
+
+  static {
+    for (int i = 0; i < CACHE.length; i++) {
+      CACHE[i] = new LongRow(i + CACHE_LOW);
+    }
+  }
+
+  private final long value;
+
+  /**
+   * Constructor.
+   *
+   * @param value Value to hold.
+   */
+  private LongRow(long value) {
+    super(Type.LONG);
+    this.value = value;
+  }
+
+  /**
+   * Gets a Row holding a long, shared for small values.
+   *
+   * @param value Value to hold.
+   * @return Row holding the value.
+   */
+  public static LongRow of(long value) {
+    if (value >= CACHE_LOW && value <= CACHE_HIGH) {
+      return CACHE[(int) value - CACHE_LOW];
+    }
+    return new LongRow(value);
+  }
+
+  @Override
+  public Long getItem() {
+    return value;
+  }
+
+  @Override
+  public long getLong() {
+    return value;
+  }
+
+  @Override
+  public Double getDouble() {
+    return (double) value;
+  }
+
+  @Override
+  public UUID getUUID() {
+    return null;
+  }
+
+  @Override
+  public String getString() {
+    return Long.toString(value);
+  }
+}
@@ -16,17 +16,21 @@ public class MariaDBDatabase extends SqliteDatabase {
       LinkedHashMap<String, LinkedHashMap<String, String>> databases, PropertiesEx prop) {
     super(
         databases,
-        "jdbc:mariadb://"
-            + prop.getProperty("cqlcontact")
-            + ":"
-            + prop.getProperty("cqlport")
-            + "/"
-            + prop.getProperty("cqlkeyspace")
-            + (prop.getProperty("cqlauth").equals("true")
-            ? "?user=" + prop.getProperty("cqluser")
-            + "&password="
-            + prop.getProperty("cqlpassword")
-            : "")
+        DatabaseUtil.withParameter(
+            "jdbc:mariadb://"
+                + prop.getProperty("cqlcontact")
+                + ":"
+                + prop.getProperty("cqlport")
+                + "/"
+                + prop.getProperty("cqlkeyspace")
+                + (prop.getProperty("cqlauth").equals("true")
+                ? "?user=" + prop.getProperty("cqluser")
+                + "&password="
+                + prop.getProperty("cqlpassword")
+                : ""),
+            "useBulkStmts=true"
+        ),
+        prop
     );
   }
 
@@ -34,18 +38,22 @@ public class MariaDBDatabase extends SqliteDatabase {
       LinkedHashMap<String, LinkedHashMap<String, String>> databases, PropertiesEx prop, boolean ssl) {
     super(
         databases,
-        "jdbc:mariadb://"
-            + prop.getProperty("cqlcontact")
-            + ":"
-            + prop.getProperty("cqlport")
-            + "/"
-            + prop.getProperty("cqlkeyspace")
-            + "?ssl=" + ssl
-            + (prop.getProperty("cqlauth").equals("true")
-            ? "&user=" + prop.getProperty("cqluser")
-            + "&password="
-            + prop.getProperty("cqlpassword")
-            : "")
+        DatabaseUtil.withParameter(
+            "jdbc:mariadb://"
+                + prop.getProperty("cqlcontact")
+                + ":"
+                + prop.getProperty("cqlport")
+                + "/"
+                + prop.getProperty("cqlkeyspace")
+                + "?ssl=" + ssl
+                + (prop.getProperty("cqlauth").equals("true")
+                ? "&user=" + prop.getProperty("cqluser")
+                + "&password="
+                + prop.getProperty("cqlpassword")
+                : ""),
+            "useBulkStmts=true"
+        ),
+        prop
     );
   }
 }
@@ -0,0 +1,309 @@
+package com.erliapp.utilities.database;
+
+import com.erliapp.utilities.Snowflake;
+import com.erliapp.utilities.SnowflakeLayout;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Leases unique Snowflake Node IDs from a table, so every node in a cluster gets its own ID without
+ * relying on MAC addresses.
+ *
+ * <p>A free Node ID is taken with {@link Database#insertIfAbsent}, which inserts atomically, so two
+ * nodes can never take the same one. Once every ID has been used, expired leases are taken over
+ * instead. A lease lasts a set
+ * time, and is renewed in the background while the registry is open. Closing the registry ends the
+ * lease straight away, and the registry can't be used again.
+ *
+ * <p>Snowflakes from {@link #newSnowflake(long)} are fenced by the lease: once it is lost, such as
+ * when it can't be renewed in time, they stop creating ids, since another node may now be using the
+ * same Node ID.
+ *
+ * <p>The table must be added to the {@link DatabaseBuilder} with
+ * {@link #addTable(DatabaseBuilder)}.
+ */
+public class NodeIdRegistry implements AutoCloseable {
+
+  /** Name of the table holding the leases. */
+  public static final String TABLE = "snowflake_nodes";
+
+  private static final String[] COLUMNS = {"node_id", "owner", "expires"};
+
+  private final Database database;
+  private final boolean cql;
+  private final SnowflakeLayout layout;
+  private final long leaseMillis;
+  private final String owner = UUID.randomUUID().toString();
+  private final ScheduledExecutorService heartbeat;
+
+  private volatile long nodeId = -1;
+  private volatile long expires = 0;
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor, for Node IDs of the default Snowflake layout.
+   *
+   * @param database Database holding the leases.
+   * @param leaseMillis How long a lease lasts without being renewed.
+   */
+  public NodeIdRegistry(Database database, long leaseMillis) {
+    this(database, SnowflakeLayout.DEFAULT, leaseMillis);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param database Database holding the leases.
+   * @param layout Snowflake layout, which sets the range of Node IDs.
+   * @param leaseMillis How long a lease lasts without being renewed.
+   * @throws IllegalArgumentException if the lease is shorter than 3 milliseconds.
+   */
+  public NodeIdRegistry(Database database, SnowflakeLayout layout, long leaseMillis)
+      throws IllegalArgumentException {
+    if (leaseMillis < 3) {
+      throw new IllegalArgumentException("Lease must be at least 3 milliseconds!");
+    }
+    this.database = database;
+    this.cql = database.isCql();
+    this.layout = layout;
+    this.leaseMillis = leaseMillis;
+    this.heartbeat = Executors.newSingleThreadScheduledExecutor(runnable -> {
+      Thread thread = new Thread(runnable, "node-id-heartbeat");
+      thread.setDaemon(true);
+      return thread;
+    });
+
+    // SQL tables are created by the builder, but Cassandra tables aren't.
+    if (cql) {
+      database.update("CREATE TABLE IF NOT EXISTS " + TABLE
+          + " (node_id BIGINT PRIMARY KEY, owner TEXT, expires BIGINT)");
+    }
+  }
+
+  /**
+   * Adds the lease table to a database setup.
+   *
+   * @param builder Builder of the database that will hold the leases.
+   */
+  public static void addTable(DatabaseBuilder builder) {
+    builder.addDatabaseValue(TABLE, "node_id", "bigint");
+    builder.addDatabaseValue(TABLE, "owner", "text");
+    builder.addDatabaseValue(TABLE, "expires", "bigint");
+    builder.addPrimaryKey(TABLE, "node_id");
+    builder.addPartitionKey(TABLE, "node_id");
+  }
+
+  /**
+   * Leases a Node ID, and starts renewing it in the background. Does nothing if one is already
+   * leased.
+   *
+   * @return Leased Node ID.
+   * @throws IllegalStateException if every Node ID is leased by another node, or the registry is
+   *     closed.
+   */
+  public synchronized long acquire() throws IllegalStateException {
+    if (closed) {
+      throw new IllegalStateException("Registry is closed!");
+    }
+    if (nodeId >= 0) {
+      return nodeId;
+    }
+
+    long now = System.currentTimeMillis();
+    Set<Long> used = new HashSet<>();
+    List<Long> expired = new ArrayList<>();
+    DatabaseSelection rows = database.select(COLUMNS, TABLE, "");
+    for (int i = 0; i < rows.size(); i++) {
+      long id = rows.getValue(i, "node_id").getLong();
+      used.add(id);
+      if (rows.getValue(i, "expires").getLong() < now) {
+        expired.add(id);
+      }
+    }
+
+    // Start somewhere random, so nodes starting together don't all race for the same ID.
+    long count = layout.getMaxNodeId() + 1;
+    long start = Math.floorMod(new SecureRandom().nextLong(), count);
+    for (long i = 0; i < count; i++) {
+      long id = (start + i) % count;
+      if (!used.contains(id)
+          && database.insertIfAbsent(TABLE, COLUMNS, id, owner, now + leaseMillis)) {
+        return hold(id, now);
+      }
+    }
+    for (long id : expired) {
+      if (takeOver(id, now)) {
+        return hold(id, now);
+      }
+    }
+    throw new IllegalStateException("Every Node ID is already leased!");
+  }
+
+  /**
+   * Gets the leased Node ID.
+   *
+   * @return Node ID.
+   * @throws IllegalStateException if no Node ID has been leased.
+   */
+  public long getNodeId() throws IllegalStateException {
+    if (nodeId < 0) {
+      throw new IllegalStateException("No Node ID has been leased!");
+    }
+    return nodeId;
+  }
+
+  /**
+   * Checks if the lease is still held. A lease is lost if it couldn't be renewed before it expired,
+   * in which case another node may take over the Node ID.
+   *
+   * @return {@code true} if a Node ID is leased, and its lease hasn't expired.
+   */
+  public boolean isHeld() {
+    return nodeId >= 0 && System.currentTimeMillis() < expires;
+  }
+
+  /**
+   * Gets the owner written into the lease, which identifies this registry.
+   *
+   * @return Lease owner.
+   */
+  public String getOwner() {
+    return owner;
+  }
+
+  /**
+   * Creates a Snowflake using the leased Node ID, leasing one first if needed. The Snowflake throws
+   * an {@link IllegalStateException} instead of creating ids once the lease is no longer held.
+   *
+   * @param customEpoch A Unix Timestamp of an Epoch
+   * @return New Snowflake.
+   * @throws IllegalStateException if every Node ID is leased by another node, or the registry is
+   *     closed.
+   */
+  public Snowflake newSnowflake(long customEpoch) throws IllegalStateException {
+    return new LeasedSnowflake(acquire(), customEpoch);
+  }
+
+  /**
+   * Stops renewing the lease, and ends it so the Node ID can be used again. The registry can't
+   * lease another Node ID afterwards.
+   */
+  @Override
+  public synchronized void close() {
+    closed = true;
+    heartbeat.shutdownNow();
+    if (nodeId >= 0) {
+      database.update(conditionalUpdate("expires = 0", nodeId, "owner = '" + owner + "'"));
+      nodeId = -1;
+      expires = 0;
+    }
+  }
+
+  /**
+   * Records a newly leased Node ID, and schedules its renewal.
+   *
+   * @param id Leased Node ID.
+   * @param now Time the lease was taken.
+   * @return The same Node ID.
+   */
+  private long hold(long id, long now) {
+    nodeId = id;
+    expires = now + leaseMillis;
+    long period = leaseMillis / 3;
+    heartbeat.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+    return id;
+  }
+
+  /**
+   * Extends the lease, if it is still owned by this registry. The lease is only extended locally
+   * once the database confirms the write, and is dropped at once if another registry owns it.
+   */
+  private void renew() {
+    long id = nodeId;
+    if (id < 0) {
+      return;
+    }
+    try {
+      long now = System.currentTimeMillis();
+      if (database.tryUpdate(conditionalUpdate(
+          "expires = " + (now + leaseMillis), id, "owner = '" + owner + "'"))) {
+        expires = now + leaseMillis;
+      } else {
+        expires = 0;
+      }
+    } catch (RuntimeException e) {
+      // Keep trying on the next heartbeat, until the lease expires.
+      e.printStackTrace();
+    }
+  }
+
+  /**
+   * Takes over an expired lease.
+   *
+   * @param id Node ID of the lease.
+   * @param now Current time.
+   * @return {@code true} if this registry now owns the lease.
+   */
+  private boolean takeOver(long id, long now) {
+    return database.tryUpdate(conditionalUpdate(
+        "owner = '" + owner + "', expires = " + (now + leaseMillis), id, "expires < " + now));
+  }
+
+  /**
+   * Builds an UPDATE of a lease that only applies if a condition holds. Cassandra runs it as a
+   * lightweight transaction.
+   *
+   * @param set Columns to set.
+   * @param id Node ID of the lease.
+   * @param condition Condition the lease must meet.
+   * @return UPDATE query.
+   */
+  private String conditionalUpdate(String set, long id, String condition) {
+    return "UPDATE " + TABLE + " SET " + set + " WHERE node_id = " + id
+        + (cql ? " IF " : " AND ") + condition;
+  }
+
+  /** Snowflake that only creates ids while the registry holds the lease on its Node ID. */
+  private final class LeasedSnowflake extends Snowflake {
+
+    /**
+     * Constructor.
+     *
+     * @param nodeId Leased Node ID.
+     * @param customEpoch A Unix Timestamp of an Epoch
+     */
+    LeasedSnowflake(long nodeId, long customEpoch) {
+      super(layout, nodeId, customEpoch);
+    }
+
+    @Override
+    public long nextId() {
+      checkLease();
+      return super.nextId();
+    }
+
+    @Override
+    public void fill(long[] dest, int off, int len) {
+      checkLease();
+      super.fill(dest, off, len);
+    }
+
+    /**
+     * Checks that the lease is still held.
+     *
+     * @throws IllegalStateException if the lease has been lost or ended.
+     */
+    private void checkLease() throws IllegalStateException {
+      if (!isHeld() || NodeIdRegistry.this.nodeId != getNodeId()) {
+        throw new IllegalStateException("Lease on Node ID " + getNodeId() + " is no longer held!");
+      }
+    }
+  }
+}
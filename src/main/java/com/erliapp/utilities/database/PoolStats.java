@@ -0,0 +1,133 @@
+package com.erliapp.utilities.database;
+
+/** Snapshot of a connection pool's state and counters. */
+public class PoolStats {
+
+  private final int active;
+  private final int idle;
+  private final int maxSize;
+  private final long borrowCount;
+  private final long totalWaitNanos;
+  private final long statementCacheHits;
+  private final long statementCacheMisses;
+
+  /**
+   * Constructor.
+   *
+   * @param active Connections currently borrowed.
+   * @param idle Connections currently waiting in the pool.
+   * @param maxSize Maximum number of connections the pool may open.
+   * @param borrowCount Number of times a connection has been borrowed.
+   * @param totalWaitNanos Total time spent waiting for connections, in nanoseconds.
+   * @param statementCacheHits Number of statements found in a connection's statement cache.
+   * @param statementCacheMisses Number of statements that had to be prepared.
+   */
+  public PoolStats(
+      int active,
+      int idle,
+      int maxSize,
+      long borrowCount,
+      long totalWaitNanos,
+      long statementCacheHits,
+      long statementCacheMisses
+  ) {
+    this.active = active;
+    this.idle = idle;
+    this.maxSize = maxSize;
+    this.borrowCount = borrowCount;
+    this.totalWaitNanos = totalWaitNanos;
+    this.statementCacheHits = statementCacheHits;
+    this.statementCacheMisses = statementCacheMisses;
+  }
+
+  /**
+   * Gets the number of connections currently in use.
+   *
+   * @return Active connections.
+   */
+  public int getActive() {
+    return active;
+  }
+
+  /**
+   * Gets the number of open connections not currently in use.
+   *
+   * @return Idle connections.
+   */
+  public int getIdle() {
+    return idle;
+  }
+
+  /**
+   * Gets the maximum number of connections the pool may open.
+   *
+   * @return Maximum pool size.
+   */
+  public int getMaxSize() {
+    return maxSize;
+  }
+
+  /**
+   * Gets the number of times a connection has been borrowed from the pool.
+   *
+   * @return Borrow count.
+   */
+  public long getBorrowCount() {
+    return borrowCount;
+  }
+
+  /**
+   * Gets the total time callers have spent waiting to obtain a connection.
+   *
+   * @return Wait time in nanoseconds.
+   */
+  public long getTotalWaitNanos() {
+    return totalWaitNanos;
+  }
+
+  /**
+   * Gets the average time spent waiting to obtain a connection.
+   *
+   * @return Average wait time in nanoseconds, or {@code 0} if nothing was borrowed yet.
+   */
+  public long getAverageWaitNanos() {
+    return borrowCount == 0 ? 0 : totalWaitNanos / borrowCount;
+  }
+
+  /**
+   * Gets the number of statements that were reused from a connection's statement cache.
+   *
+   * @return Statement cache hits.
+   */
+  public long getStatementCacheHits() {
+    return statementCacheHits;
+  }
+
+  /**
+   * Gets the number of statements that had to be prepared, because they weren't cached.
+   *
+   * @return Statement cache misses.
+   */
+  public long getStatementCacheMisses() {
+    return statementCacheMisses;
+  }
+
+  @Override
+  public String toString() {
+    return "PoolStats [active="
+        + active
+        + ", idle="
+        + idle
+        + ", maxSize="
+        + maxSize
+        + ", borrowCount="
+        + borrowCount
+        + ", averageWaitNanos="
+        + getAverageWaitNanos()
+        + ", statementCacheHits="
+        + statementCacheHits
+        + ", statementCacheMisses="
+        + statementCacheMisses
+        + "]";
+  }
+}
@@ -0,0 +1,431 @@
+package com.erliapp.utilities.database;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.io.IOException;
+import java.sql.SQLException;
+import java.sql.SQLNonTransientConnectionException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTimeoutException;
+import java.sql.SQLTransientConnectionException;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Sends writes to a primary database, and spreads selects over its read replicas.
+ *
+ * <p>Each select goes to the replica in rotation with the fewest selects already running on it.
+ * A replica that can't be reached is taken out of rotation, and the select is retried on another
+ * replica, then on the primary. Failed replicas are tried again after the check interval. Errors
+ * in the select itself, such as a bad WHERE statement, are thrown straight away.
+ *
+ * <p>With a maximum lag set, the primary writes the time into a heartbeat table every check
+ * interval. Each round, every replica's copy of the heartbeat is compared with the heartbeat
+ * written the round before, which it has had a whole interval to receive, and the replica is
+ * taken out of rotation while it is behind by more than the maximum lag. With a read-your-writes
+ * window set, a thread's selects go to the primary for that long after the thread writes, so it
+ * always sees its own writes.
+ */
+public class ReplicatedDatabase implements Database {
+
+  /** Name of the table the primary writes heartbeats into, to measure replica lag. */
+  public static final String HEARTBEAT_TABLE = "replica_heartbeat";
+
+  private static final String[] HEARTBEAT_COLUMNS = {"id", "ts"};
+
+  // SQLite result codes for a database file that can't be read: IOERR, CORRUPT, CANTOPEN, NOTADB.
+  private static final Set<Integer> SQLITE_FILE_ERRORS = Set.of(10, 11, 14, 26);
+
+  /** State of a single replica. */
+  private static class Replica {
+    private final Database database;
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private volatile boolean lagging = false;
+    private volatile boolean failed = false;
+    private volatile long retryAt;
+
+    private Replica(Database database) {
+      this.database = database;
+    }
+
+    /**
+     * Checks if selects may be sent to the replica.
+     *
+     * @param now Current {@link System#nanoTime()}.
+     * @return {@code true} if the replica is in rotation.
+     */
+    private boolean inRotation(long now) {
+      return !lagging && (!failed || now - retryAt >= 0);
+    }
+  }
+
+  private final Database primary;
+  private final List<Database> replicaDatabases;
+  private final Replica[] replicas;
+  private final long checkNanos;
+  private final long maxLagMillis;
+  private final long readYourWritesNanos;
+  private final AtomicInteger next = new AtomicInteger();
+  private final ThreadLocal<long[]> lastWrite = ThreadLocal.withInitial(() -> new long[1]);
+  private final ScheduledExecutorService checker;
+  private volatile long lastHeartbeat = 0;
+
+  /**
+   * Constructor.
+   *
+   * @param primary Database that takes every write.
+   * @param replicas Read replicas of the primary.
+   * @param prop Database Configuration, used for the replica settings.
+   * @throws IllegalArgumentException if a replica setting is negative.
+   */
+  public ReplicatedDatabase(
+      Database primary, List<? extends Database> replicas, PropertiesEx prop)
+      throws IllegalArgumentException {
+    long checkMillis = Long.parseLong(prop.getProperty("replicaCheckInterval", "1000"));
+    this.maxLagMillis = Long.parseLong(prop.getProperty("replicaMaxLag", "0"));
+    long readYourWrites = Long.parseLong(prop.getProperty("replicaReadYourWrites", "0"));
+    if (checkMillis < 1 || maxLagMillis < 0 || readYourWrites < 0) {
+      throw new IllegalArgumentException("Replica settings can't be negative!");
+    }
+    this.primary = primary;
+    this.replicaDatabases = List.copyOf(replicas);
+    this.replicas = new Replica[replicaDatabases.size()];
+    for (int i = 0; i < this.replicas.length; i++) {
+      this.replicas[i] = new Replica(replicaDatabases.get(i));
+    }
+    this.checkNanos = TimeUnit.MILLISECONDS.toNanos(checkMillis);
+    this.readYourWritesNanos = TimeUnit.MILLISECONDS.toNanos(readYourWrites);
+
+    if (maxLagMillis > 0) {
+      this.checker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "database-replica-check");
+        thread.setDaemon(true);
+        return thread;
+      });
+      primary.insertIfAbsent(HEARTBEAT_TABLE, HEARTBEAT_COLUMNS, 0L, System.currentTimeMillis());
+      checker.scheduleWithFixedDelay(this::checkLag, 0, checkMillis, TimeUnit.MILLISECONDS);
+    } else {
+      this.checker = null;
+    }
+  }
+
+  /**
+   * Adds the heartbeat table to a database setup, so replica lag can be measured.
+   *
+   * @param builder Builder of the primary and replica databases.
+   */
+  public static void addHeartbeatTable(DatabaseBuilder builder) {
+    builder.addDatabaseValue(HEARTBEAT_TABLE, "id", "bigint");
+    builder.addDatabaseValue(HEARTBEAT_TABLE, "ts", "bigint");
+    builder.addPrimaryKey(HEARTBEAT_TABLE, "id");
+  }
+
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, String where) {
+    return read(db -> db.select(selecting, database, where));
+  }
+
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    return read(db -> db.select(selecting, database, condition));
+  }
+
+  /**
+   * Makes a database selection, reading rows lazily. The replica counts the select as running
+   * until the stream is closed.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return Stream of rows, each mapping column names to values.
+   */
+  @Override
+  public Stream<Map<String, Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    Replica replica = readsFromPrimary() ? null : pick();
+    if (replica == null) {
+      return primary.selectStream(selecting, database, where);
+    }
+    replica.outstanding.incrementAndGet();
+    try {
+      return replica.database.selectStream(selecting, database, where)
+          .onClose(replica.outstanding::decrementAndGet);
+    } catch (RuntimeException e) {
+      replica.outstanding.decrementAndGet();
+      if (!isConnectionFailure(e)) {
+        throw e;
+      }
+      fail(replica);
+      return primary.selectStream(selecting, database, where);
+    }
+  }
+
+  @Override
+  public ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+    return read(db -> db.selectColumnar(selecting, database, where));
+  }
+
+  @Override
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize) {
+    return read(db -> db.selectRange(selecting, database, idColumn, fromId, toId, pageSize));
+  }
+
+  @Override
+  public void update(String query) {
+    primary.update(query);
+    wrote();
+  }
+
+  @Override
+  public boolean tryUpdate(String query) {
+    boolean applied = primary.tryUpdate(query);
+    wrote();
+    return applied;
+  }
+
+  @Override
+  public void insert(String database, String[] inserting, Object... values) {
+    primary.insert(database, inserting, values);
+    wrote();
+  }
+
+  @Override
+  public boolean insertIfAbsent(String database, String[] inserting, Object... values) {
+    boolean inserted = primary.insertIfAbsent(database, inserting, values);
+    wrote();
+    return inserted;
+  }
+
+  @Override
+  public int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize) {
+    int[] counts = primary.insertBatch(database, inserting, rows, batchSize);
+    wrote();
+    return counts;
+  }
+
+  @Override
+  public int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows) {
+    int[] counts = primary.insertBatch(database, inserting, rows);
+    wrote();
+    return counts;
+  }
+
+  @Override
+  public void addCommitListener(Consumer<String> listener) {
+    primary.addCommitListener(listener);
+  }
+
+  @Override
+  public boolean isCql() {
+    return primary.isCql();
+  }
+
+  /**
+   * Gets the state of the primary's connection pool.
+   *
+   * @return Pool statistics of the primary.
+   */
+  @Override
+  public PoolStats getPoolStats() {
+    return primary.getPoolStats();
+  }
+
+  /**
+   * Gets the database that takes every write.
+   *
+   * @return Primary database.
+   */
+  public Database getPrimary() {
+    return primary;
+  }
+
+  /**
+   * Gets the read replicas.
+   *
+   * @return Replicas, in the order they were given.
+   */
+  public List<Database> getReplicas() {
+    return replicaDatabases;
+  }
+
+  /**
+   * Gets the number of replicas selects may currently be sent to.
+   *
+   * @return Replicas in rotation.
+   */
+  public int getReplicasInRotation() {
+    long now = System.nanoTime();
+    int count = 0;
+    for (Replica replica : replicas) {
+      if (replica.inRotation(now)) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /** Stops checking the replicas, and closes every database. */
+  @Override
+  public void close() {
+    if (checker != null) {
+      checker.shutdownNow();
+    }
+    for (Database replica : replicaDatabases) {
+      replica.close();
+    }
+    primary.close();
+  }
+
+  /**
+   * Runs a select on the least busy replica in rotation, falling back to other replicas, then to
+   * the primary, if it fails.
+   *
+   * @param request Select to run.
+   * @param <T> Result of the select.
+   * @return Result of the select.
+   */
+  private <T> T read(Function<Database, T> request) {
+    if (!readsFromPrimary()) {
+      for (int attempt = 0; attempt < replicas.length; attempt++) {
+        Replica replica = pick();
+        if (replica == null) {
+          break;
+        }
+        replica.outstanding.incrementAndGet();
+        try {
+          return request.apply(replica.database);
+        } catch (RuntimeException e) {
+          if (!isConnectionFailure(e)) {
+            throw e;
+          }
+          fail(replica);
+        } finally {
+          replica.outstanding.decrementAndGet();
+        }
+      }
+    }
+    return request.apply(primary);
+  }
+
+  /**
+   * Picks the replica in rotation with the fewest selects running. Ties are broken round robin,
+   * so idle replicas share the load.
+   *
+   * @return Replica, or {@code null} if none are in rotation.
+   */
+  private Replica pick() {
+    long now = System.nanoTime();
+    int start = Math.floorMod(next.getAndIncrement(), Math.max(replicas.length, 1));
+    Replica best = null;
+    int bestOutstanding = Integer.MAX_VALUE;
+    for (int i = 0; i < replicas.length; i++) {
+      Replica replica = replicas[(start + i) % replicas.length];
+      int outstanding = replica.outstanding.get();
+      if (outstanding < bestOutstanding && replica.inRotation(now)) {
+        best = replica;
+        bestOutstanding = outstanding;
+      }
+    }
+    return best;
+  }
+
+  /**
+   * Checks if a failed select means the replica couldn't be reached, rather than that the select
+   * itself was wrong.
+   *
+   * @param e Error thrown by the select.
+   * @return {@code true} for connection, transport, and timeout failures.
+   */
+  private static boolean isConnectionFailure(Throwable e) {
+    for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+      if (cause instanceof SQLTransientConnectionException
+          || cause instanceof SQLNonTransientConnectionException
+          || cause instanceof SQLRecoverableException
+          || cause instanceof SQLTimeoutException
+          || cause instanceof IOException) {
+        return true;
+      }
+      if (cause instanceof SQLException) {
+        SQLException sql = (SQLException) cause;
+        String state = sql.getSQLState();
+        if (state != null
+            ? state.startsWith("08")
+            : SQLITE_FILE_ERRORS.contains(sql.getErrorCode())) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Takes a replica out of rotation until the check interval has passed.
+   *
+   * @param replica Replica that failed.
+   */
+  private void fail(Replica replica) {
+    replica.retryAt = System.nanoTime() + checkNanos;
+    replica.failed = true;
+  }
+
+  /**
+   * Checks if the current thread wrote recently enough that it must read from the primary.
+   *
+   * @return {@code true} if selects should go to the primary.
+   */
+  private boolean readsFromPrimary() {
+    if (readYourWritesNanos == 0) {
+      return false;
+    }
+    long last = lastWrite.get()[0];
+    return last != 0 && System.nanoTime() - last < readYourWritesNanos;
+  }
+
+  /** Records that the current thread wrote to the primary. */
+  private void wrote() {
+    if (readYourWritesNanos > 0) {
+      lastWrite.get()[0] = System.nanoTime();
+    }
+  }
+
+  /**
+   * Takes replicas that are too far behind the last heartbeat out of rotation, then writes a new
+   * heartbeat to the primary.
+   */
+  private void checkLag() {
+    // Replicas are compared with the heartbeat written last round, since they can't have the one
+    // about to be written yet.
+    long written = lastHeartbeat;
+    if (written > 0) {
+      for (Replica replica : replicas) {
+        try {
+          DatabaseSelection rows =
+              replica.database.select(new String[] {"ts"}, HEARTBEAT_TABLE, "id = 0");
+          replica.lagging =
+              rows.size() == 0 || written - rows.getValue(0, "ts").getLong() > maxLagMillis;
+          replica.failed = false;
+        } catch (RuntimeException e) {
+          fail(replica);
+        }
+      }
+    }
+
+    long now = System.currentTimeMillis();
+    try {
+      primary.update("UPDATE " + HEARTBEAT_TABLE + " SET ts = " + now + " WHERE id = 0");
+      lastHeartbeat = now;
+    } catch (RuntimeException e) {
+      // Replicas keep being compared with the last heartbeat that was written.
+      e.printStackTrace();
+    }
+  }
+}
@@ -2,19 +2,56 @@ package com.erliapp.utilities.database;
 
 import java.util.UUID;
 
-/** Handles a Row of data within a Database. */
+/**
+ * Handles a Row of data within a Database.
+ *
+ * <p>Values read from a database are created with {@link #of(long)} and the other {@code of}
+ * methods, which return a subclass holding the primitive value directly, and share instances for
+ * common values.
+ */
 public class Row<T extends Object> {
 
-  private final Class<?>[] allowedTypes = new Class[]{
-          String.class,
-          Double.class,
-          Long.class,
-          UUID.class
-  };
+  /** Type of value held by a Row. */
+  public enum Type {
+    LONG(Long.class),
+    DOUBLE(Double.class),
+    STRING(String.class),
+    UUID(java.util.UUID.class);
 
-  private final Class<?> type;
+    private final Class<?> javaClass;
 
-  private T item;
+    Type(Class<?> javaClass) {
+      this.javaClass = javaClass;
+    }
+
+    /**
+     * Gets the Java class of values of this type.
+     *
+     * @return Java class.
+     */
+    public Class<?> getJavaClass() {
+      return javaClass;
+    }
+
+    /**
+     * Finds the type of a Java class.
+     *
+     * @param iClass Class to look up.
+     * @return Type, or {@code null} if the class is not a valid type.
+     */
+    static Type of(Class<?> iClass) {
+      for (Type type : values()) {
+        if (type.javaClass == iClass) {
+          return type;
+        }
+      }
+      return null;
+    }
+  }
+
+  private final Type type;
+
+  private final T item;
 
   /**
    * Row Constructor.
@@ -23,20 +60,63 @@ public class Row<T extends Object> {
    * @param item Row data.
    */
   public Row(Class<T> iClass, T item) {
-    boolean found = false;
-    for (Class<?> c : allowedTypes) {
-      if (c.getName().equals(iClass.getName()) && c.getPackageName().equals(iClass.getPackageName())) {
-        found = true;
-      }
-    }
-    if (found) {
-      this.type = iClass;
-      this.item = item;
-    } else {
+    Type found = Type.of(iClass);
+    if (found == null) {
       throw new RuntimeException("Class " + iClass.getName() + " is not a valid type.");
     }
+    this.type = found;
+    this.item = item;
+  }
+
+  /**
+   * Constructor for subclasses that hold their own value.
+   *
+   * @param type Type of the value.
+   */
+  Row(Type type) {
+    this.type = type;
+    this.item = null;
+  }
+
+  /**
+   * Creates a Row holding a long.
+   *
+   * @param value Value to hold.
+   * @return Row, shared for small values.
+   */
+  public static Row<Long> of(long value) {
+    return LongRow.of(value);
+  }
+
+  /**
+   * Creates a Row holding a double.
+   *
+   * @param value Value to hold.
+   * @return Row, shared for zero.
+   */
+  public static Row<Double> of(double value) {
+    return DoubleRow.of(value);
   }
 
+  /**
+   * Creates a Row holding a String.
+   *
+   * @param value Value to hold, may be {@code null}.
+   * @return Row, shared for {@code null} and empty Strings.
+   */
+  public static Row<String> of(String value) {
+    return StringRow.of(value);
+  }
+
+  /**
+   * Creates a Row holding a UUID.
+   *
+   * @param value Value to hold, may be {@code null}.
+   * @return Row, shared for {@code null}.
+   */
+  public static Row<UUID> of(UUID value) {
+    return UuidRow.of(value);
+  }
 
   public T getItem() {
     return this.item;
@@ -45,49 +125,37 @@ public class Row<T extends Object> {
   /**
    * Gets a Long Value from a Row.
    *
-   * @return Value as a long.
+   * @return Value as a long, or {@code -1} if it isn't a number.
    */
   public long getLong() {
-
     if (item instanceof Long) {
       return (long) item;
-    } else {
-      String s = getString();
-
-      try {
-        return Long.parseLong(s);
-      } catch (Exception e) {
-        return -1L;
-      }
     }
+    return parseLong(getString());
   }
 
+  /**
+   * Gets a Double Value from a Row.
+   *
+   * @return Value as a double, or {@code -1.0} if it isn't a number.
+   */
   public Double getDouble() {
     if (item instanceof Double) {
       return (double) item;
-    } else {
-      String s = getString();
-
-      try {
-        return Double.parseDouble(s);
-      } catch (Exception e) {
-        return -1.0;
-      }
     }
+    return parseDouble(getString());
   }
 
+  /**
+   * Gets a UUID Value from a Row.
+   *
+   * @return Value as a UUID, or {@code null} if it isn't a UUID.
+   */
   public UUID getUUID() {
     if (item instanceof UUID) {
       return (UUID) item;
-    } else {
-      String s = getString();
-
-      try {
-        return UUID.fromString(s);
-      } catch (IllegalArgumentException e) {
-        return null;
-      }
     }
+    return parseUuid(getString());
   }
 
   /**
@@ -96,10 +164,147 @@ public class Row<T extends Object> {
    * @return Value as a String
    */
   public String getString() {
-    return item.toString();
+    return item == null ? null : item.toString();
   }
 
   public Class<?> getType() {
+    return type.getJavaClass();
+  }
+
+  /**
+   * Gets the type of value held by this Row.
+   *
+   * @return Type code.
+   */
+  public Type getTypeCode() {
     return type;
   }
+
+  /**
+   * Parses a long without throwing on bad input.
+   *
+   * @param s String to parse.
+   * @return Parsed value, or {@code -1} if the String isn't a valid long.
+   */
+  static long parseLong(String s) {
+    if (s == null || s.isEmpty()) {
+      return -1L;
+    }
+    int i = 0;
+    boolean negative = false;
+    char first = s.charAt(0);
+    if (first == '-' || first == '+') {
+      negative = first == '-';
+      i++;
+      if (s.length() == 1) {
+        return -1L;
+      }
+    }
+    // Accumulate negatively, so Long.MIN_VALUE can be parsed.
+    long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+    long result = 0;
+    for (; i < s.length(); i++) {
+      int digit = s.charAt(i) - '0';
+      if (digit < 0 || digit > 9 || result < limit / 10) {
+        return -1L;
+      }
+      result *= 10;
+      if (result < limit + digit) {
+        return -1L;
+      }
+      result -= digit;
+    }
+    return negative ? result : -result;
+  }
+
+  /**
+   * Parses a double without throwing on bad input.
+   *
+   * @param s String to parse.
+   * @return Parsed value, or {@code -1.0} if the String isn't a valid double.
+   */
+  static double parseDouble(String s) {
+    if (s == null) {
+      return -1.0;
+    }
+    String trimmed = s.trim();
+    int i = 0;
+    int length = trimmed.length();
+    if (i < length && (trimmed.charAt(i) == '-' || trimmed.charAt(i) == '+')) {
+      i++;
+    }
+    String rest = trimmed.substring(i);
+    if (rest.equals("NaN") || rest.equals("Infinity")) {
+      return Double.parseDouble(trimmed);
+    }
+
+    int digits = 0;
+    while (i < length && Character.isDigit(trimmed.charAt(i))) {
+      i++;
+      digits++;
+    }
+    if (i < length && trimmed.charAt(i) == '.') {
+      i++;
+      while (i < length && Character.isDigit(trimmed.charAt(i))) {
+        i++;
+        digits++;
+      }
+    }
+    if (digits == 0) {
+      return -1.0;
+    }
+    if (i < length && (trimmed.charAt(i) == 'e' || trimmed.charAt(i) == 'E')) {
+      i++;
+      if (i < length && (trimmed.charAt(i) == '-' || trimmed.charAt(i) == '+')) {
+        i++;
+      }
+      int exponentDigits = 0;
+      while (i < length && Character.isDigit(trimmed.charAt(i))) {
+        i++;
+        exponentDigits++;
+      }
+      if (exponentDigits == 0) {
+        return -1.0;
+      }
+    }
+    if (i < length && "dDfF".indexOf(trimmed.charAt(i)) >= 0) {
+      i++;
+    }
+    return i == length ? Double.parseDouble(trimmed) : -1.0;
+  }
+
+  /**
+   * Parses a UUID in its standard 36 character form without throwing on bad input.
+   *
+   * @param s String to parse.
+   * @return Parsed value, or {@code null} if the String isn't a valid UUID.
+   */
+  static UUID parseUuid(String s) {
+    if (s == null || s.length() != 36) {
+      return null;
+    }
+    long mostSigBits = 0;
+    long leastSigBits = 0;
+    int digits = 0;
+    for (int i = 0; i < 36; i++) {
+      char c = s.charAt(i);
+      if (i == 8 || i == 13 || i == 18 || i == 23) {
+        if (c != '-') {
+          return null;
+        }
+        continue;
+      }
+      int value = Character.digit(c, 16);
+      if (value < 0) {
+        return null;
+      }
+      if (digits < 16) {
+        mostSigBits = (mostSigBits << 4) | value;
+      } else {
+        leastSigBits = (leastSigBits << 4) | value;
+      }
+      digits++;
+    }
+    return new UUID(mostSigBits, leastSigBits);
+  }
 }
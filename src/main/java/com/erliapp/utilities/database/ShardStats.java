@@ -0,0 +1,97 @@
+package com.erliapp.utilities.database;
+
+/** Snapshot of the requests sent to a single shard of a {@link ShardedDatabase}. */
+public class ShardStats {
+
+  private final int shard;
+  private final long requests;
+  private final long errors;
+  private final long totalNanos;
+  private final long maxNanos;
+
+  /**
+   * Constructor.
+   *
+   * @param shard Index of the shard.
+   * @param requests Number of requests sent to the shard.
+   * @param errors Number of requests that failed.
+   * @param totalNanos Total time spent on requests, in nanoseconds.
+   * @param maxNanos Longest time spent on a single request, in nanoseconds.
+   */
+  public ShardStats(int shard, long requests, long errors, long totalNanos, long maxNanos) {
+    this.shard = shard;
+    this.requests = requests;
+    this.errors = errors;
+    this.totalNanos = totalNanos;
+    this.maxNanos = maxNanos;
+  }
+
+  /**
+   * Gets the index of the shard, in the order the shards were given.
+   *
+   * @return Shard index.
+   */
+  public int getShard() {
+    return shard;
+  }
+
+  /**
+   * Gets the number of requests sent to the shard.
+   *
+   * @return Request count.
+   */
+  public long getRequests() {
+    return requests;
+  }
+
+  /**
+   * Gets the number of requests to the shard that failed.
+   *
+   * @return Error count.
+   */
+  public long getErrors() {
+    return errors;
+  }
+
+  /**
+   * Gets the total time spent on requests to the shard.
+   *
+   * @return Time in nanoseconds.
+   */
+  public long getTotalNanos() {
+    return totalNanos;
+  }
+
+  /**
+   * Gets the average time spent on a request to the shard.
+   *
+   * @return Average time in nanoseconds, or {@code 0} if nothing was sent yet.
+   */
+  public long getAverageNanos() {
+    return requests == 0 ? 0 : totalNanos / requests;
+  }
+
+  /**
+   * Gets the longest time spent on a single request to the shard.
+   *
+   * @return Time in nanoseconds.
+   */
+  public long getMaxNanos() {
+    return maxNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "ShardStats [shard="
+        + shard
+        + ", requests="
+        + requests
+        + ", errors="
+        + errors
+        + ", averageNanos="
+        + getAverageNanos()
+        + ", maxNanos="
+        + maxNanos
+        + "]";
+  }
+}
@@ -0,0 +1,884 @@
+package com.erliapp.utilities.database;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Spreads the rows of each table over several databases, called shards, by the value of a shard
+ * key column, such as a Snowflake ID.
+ *
+ * <p>Rows are placed with consistent hashing: every shard owns many points on a hash ring, and a
+ * row goes to the shard owning the first point at or after the hash of its key. Adding a shard
+ * only moves the rows that land on its points.
+ *
+ * <p>Inserts go to the shard owning their key. Selects and updates whose WHERE statement matches
+ * the shard key with {@code =}, outside of any string literal, and has no {@code OR} or
+ * {@code NOT}, go to that shard alone, as do selects whose {@link Condition} compares the shard key
+ * with {@code =}. Key values are written in one form for their Data Type before hashing, so
+ * {@code 5}, {@code 05} and {@code '5'} find the same shard of a BIGINT key. Everything else,
+ * including a key value that doesn't fit its Data Type, is sent to every shard in parallel, and
+ * the results are joined in shard order, so ORDER BY and LIMIT only apply within each shard.
+ * Tables without a shard key aren't split, and are kept whole on the first shard.
+ *
+ * <p>Asynchronous queries are routed the same way. Shards that are themselves AsyncDatabases, such
+ * as Cassandra, use their own asynchronous API, and the rest run on this database's executor.
+ */
+public class ShardedDatabase implements AsyncDatabase {
+
+  private static final Pattern STATEMENT = Pattern.compile(
+      "^\\s*(?:UPDATE|DELETE\\s+FROM)\\s+(\\w+)(.*)$",
+      Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  private static final Pattern WHERE = Pattern.compile(
+      "\\bWHERE\\b(.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+  private static final Pattern SCATTER = Pattern.compile(
+      "\\b(?:OR|NOT)\\b", Pattern.CASE_INSENSITIVE);
+
+  private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+  private static final long FNV_PRIME = 0x100000001b3L;
+
+  /** Request counters of a single shard. */
+  private static class Metrics {
+    private final LongAdder requests = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+  }
+
+  private final List<Database> shards;
+  private final Map<String, String> shardKeys = new HashMap<>();
+  private final Map<String, Pattern> keyPatterns = new HashMap<>();
+  private final Map<String, ColumnType> keyTypes = new HashMap<>();
+  private final long[] ring;
+  private final int[] owners;
+  private final Metrics[] metrics;
+  private final ExecutorService executor;
+  private final boolean cql;
+
+  /**
+   * Constructor. Without the tables' setup, shard key values are only written in one form if they
+   * are whole numbers.
+   *
+   * @param shards Databases to spread rows over, each with every table set up.
+   * @param prop Database Configuration, used for the shard keys and ring settings.
+   * @throws IllegalArgumentException if there are no shards, the shards mix CQL and SQL, or the
+   *     ring settings are invalid.
+   */
+  public ShardedDatabase(List<? extends Database> shards, PropertiesEx prop)
+      throws IllegalArgumentException {
+    this(shards, new LinkedHashMap<>(), prop);
+  }
+
+  /**
+   * Constructor.
+   *
+   * @param shards Databases to spread rows over, each with every table set up.
+   * @param databases Database Setup, used for the Data Type of each shard key.
+   * @param prop Database Configuration, used for the shard keys and ring settings.
+   * @throws IllegalArgumentException if there are no shards, the shards mix CQL and SQL, or the
+   *     ring settings are invalid.
+   */
+  public ShardedDatabase(
+      List<? extends Database> shards,
+      LinkedHashMap<String, LinkedHashMap<String, String>> databases,
+      PropertiesEx prop)
+      throws IllegalArgumentException {
+    if (shards.isEmpty()) {
+      throw new IllegalArgumentException("At least one shard is required!");
+    }
+    this.cql = shards.get(0).isCql();
+    for (Database shard : shards) {
+      if (shard.isCql() != cql) {
+        throw new IllegalArgumentException("Shards can't mix CQL and SQL databases!");
+      }
+    }
+    int virtualNodes = Integer.parseInt(prop.getProperty("shardVirtualNodes", "160"));
+    if (virtualNodes < 1) {
+      throw new IllegalArgumentException("Virtual nodes per shard must be at least 1!");
+    }
+    this.shards = List.copyOf(shards);
+    for (String name : prop.stringPropertyNames()) {
+      if (name.startsWith("shardKey.")) {
+        String table = name.substring("shardKey.".length()).toLowerCase();
+        String column = prop.getProperty(name);
+        shardKeys.put(table, column);
+        // The value must end the comparison, so "id = 5 + 1" isn't taken for 5.
+        keyPatterns.put(table, Pattern.compile(
+            "(?<![\\w.])" + Pattern.quote(column)
+                + "\\s*=\\s*(?:'((?:[^']|'')*)'|([-+\\w.]+))"
+                + "(?=\\s*(?:$|[);]|(?:AND|ORDER|LIMIT|GROUP|ALLOW)\\b))",
+            Pattern.CASE_INSENSITIVE));
+        ColumnType type = keyType(databases, table, column);
+        if (type != null) {
+          keyTypes.put(table, type);
+        }
+      }
+    }
+
+    // Every shard owns several points, so rows spread evenly even with only a few shards.
+    int points = this.shards.size() * virtualNodes;
+    long[][] ringPoints = new long[points][];
+    for (int shard = 0; shard < this.shards.size(); shard++) {
+      for (int node = 0; node < virtualNodes; node++) {
+        ringPoints[shard * virtualNodes + node] =
+            new long[] {hash("shard-" + shard + "#" + node), shard};
+      }
+    }
+    Arrays.sort(ringPoints, Comparator.comparingLong(point -> point[0]));
+    this.ring = new long[points];
+    this.owners = new int[points];
+    for (int i = 0; i < points; i++) {
+      ring[i] = ringPoints[i][0];
+      owners[i] = (int) ringPoints[i][1];
+    }
+
+    this.metrics = new Metrics[this.shards.size()];
+    for (int i = 0; i < metrics.length; i++) {
+      metrics[i] = new Metrics();
+    }
+    int threads = Integer.parseInt(
+        prop.getProperty("asyncThreads", "" + this.shards.size()));
+    boolean virtual = Boolean.parseBoolean(prop.getProperty("asyncVirtualThreads", "false"));
+    this.executor = ExecutorAsyncDatabase.newExecutor(threads, virtual);
+  }
+
+  /**
+   * Makes a database selection, from one shard if the WHERE statement names a shard key, or from
+   * every shard otherwise.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return DatabaseSelection Data.
+   */
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, String where) {
+    int shard = shardFor(database, where);
+    if (shard >= 0) {
+      return timed(shard, db -> db.select(selecting, database, where));
+    }
+    DatabaseSelection out = new DatabaseSelection();
+    for (DatabaseSelection part : scatter(db -> db.select(selecting, database, where))) {
+      for (Map<String, Row<?>> row : part.getData()) {
+        out.addRow(row);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Makes a database selection with bound values, from one shard if the condition compares the
+   * shard key with {@code =}, or from every shard otherwise.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param condition Typed WHERE statement.
+   * @return DatabaseSelection Data.
+   */
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    String column = shardKeys.get(database.toLowerCase());
+    Object value = column == null ? null : condition.getEquals(column);
+    String key = value == null ? null : keyText(database, value);
+    if (column == null || key != null) {
+      int shard = column == null ? 0 : shardOf(key);
+      return timed(shard, db -> db.select(selecting, database, condition));
+    }
+    DatabaseSelection out = new DatabaseSelection();
+    for (DatabaseSelection part : scatter(db -> db.select(selecting, database, condition))) {
+      for (Map<String, Row<?>> row : part.getData()) {
+        out.addRow(row);
+      }
+    }
+    return out;
+  }
+
+  /**
+   * Makes a database selection, reading rows lazily. Without a shard key, shards are read one
+   * after another, each only once the last one's rows are used up.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return Stream of rows, each mapping column names to values.
+   */
+  @Override
+  public Stream<Map<String, Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    int shard = shardFor(database, where);
+    if (shard >= 0) {
+      return timed(shard, db -> db.selectStream(selecting, database, where));
+    }
+    return IntStream.range(0, shards.size()).boxed()
+        .flatMap(i -> timed(i, db -> db.selectStream(selecting, database, where)));
+  }
+
+  /**
+   * Makes a database selection stored by column, from one shard if the WHERE statement names a
+   * shard key, or from every shard otherwise.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return ColumnarSelection Data.
+   */
+  @Override
+  public ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+    int shard = shardFor(database, where);
+    if (shard >= 0) {
+      return timed(shard, db -> db.selectColumnar(selecting, database, where));
+    }
+    List<ColumnarSelection> parts = scatter(db -> db.selectColumnar(selecting, database, where));
+    ColumnarSelection out = parts.get(0);
+    for (int i = 1; i < parts.size(); i++) {
+      out.addAll(parts.get(i));
+    }
+    return out;
+  }
+
+  /**
+   * Selects a page of rows whose id lies in a range, in order of id. Every shard is asked for a
+   * page, and the pages are merged by id, so paging works the same as on a single database.
+   *
+   * @param selecting String array of items to select.
+   * @param database Database to select from.
+   * @param idColumn Column holding the ids.
+   * @param fromId Smallest id to select.
+   * @param toId Largest id to select.
+   * @param pageSize Most rows to select.
+   * @return DatabaseSelection Data, ordered by id.
+   */
+  @Override
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be at least 1!");
+    }
+    List<Map<String, Row<?>>> rows = new ArrayList<>();
+    for (DatabaseSelection part : scatter(
+        db -> db.selectRange(selecting, database, idColumn, fromId, toId, pageSize))) {
+      rows.addAll(part.getData());
+    }
+    rows.sort(Comparator.comparingLong(row -> row.get(idColumn).getLong()));
+
+    DatabaseSelection out = new DatabaseSelection();
+    for (Map<String, Row<?>> row : rows.subList(0, Math.min(pageSize, rows.size()))) {
+      out.addRow(row);
+    }
+    return out;
+  }
+
+  /**
+   * Runs a blank query. UPDATE and DELETE statements go to one shard if they name a shard key,
+   * and anything else, such as creating a table, runs on every shard.
+   *
+   * @param query Query to run.
+   */
+  @Override
+  public void update(String query) {
+    int shard = shardOfStatement(query);
+    if (shard >= 0) {
+      timed(shard, db -> {
+        db.update(query);
+        return null;
+      });
+    } else {
+      scatter(db -> {
+        db.update(query);
+        return null;
+      });
+    }
+  }
+
+  /**
+   * Runs a conditional UPDATE statement, routed the same way as {@link #update(String)}. When it
+   * runs on every shard, it applied if it applied on any of them.
+   *
+   * @param query UPDATE statement to run.
+   * @return {@code true} if the update applied.
+   */
+  @Override
+  public boolean tryUpdate(String query) {
+    int shard = shardOfStatement(query);
+    if (shard >= 0) {
+      return timed(shard, db -> db.tryUpdate(query));
+    }
+    return scatter(db -> db.tryUpdate(query)).contains(true);
+  }
+
+  /**
+   * Finds the shard an UPDATE or DELETE statement belongs to.
+   *
+   * @param query Query to route.
+   * @return Index of the shard, or {@code -1} if the query must run on every shard.
+   */
+  private int shardOfStatement(String query) {
+    Matcher statement = STATEMENT.matcher(query);
+    if (!statement.matches()) {
+      return -1;
+    }
+    Matcher where = WHERE.matcher(statement.group(2));
+    return shardFor(statement.group(1), where.find() ? where.group(1) : "");
+  }
+
+  /**
+   * Makes a database selection without blocking, routed the same way as {@link
+   * #select(String[], String, String)}.
+   *
+   * @param selecting String array of items to select
+   * @param database Database to select from.
+   * @param where General WHERE statement.
+   * @return Future of the DatabaseSelection Data.
+   */
+  @Override
+  public CompletableFuture<DatabaseSelection> selectAsync(
+      String[] selecting, String database, String where) {
+    int shard = shardFor(database, where);
+    if (shard >= 0) {
+      return timedAsync(shard,
+          db -> db.selectAsync(selecting, database, where),
+          db -> db.select(selecting, database, where));
+    }
+    List<CompletableFuture<DatabaseSelection>> sent = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      sent.add(timedAsync(i,
+          db -> db.selectAsync(selecting, database, where),
+          db -> db.select(selecting, database, where)));
+    }
+    return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+      DatabaseSelection out = new DatabaseSelection();
+      for (CompletableFuture<DatabaseSelection> part : sent) {
+        for (Map<String, Row<?>> row : part.join().getData()) {
+          out.addRow(row);
+        }
+      }
+      return out;
+    });
+  }
+
+  /**
+   * Runs a blank query without blocking, routed the same way as {@link #update(String)}.
+   *
+   * @param query Query to run.
+   * @return Future completed once the query has run on every shard it was sent to.
+   */
+  @Override
+  public CompletableFuture<Void> updateAsync(String query) {
+    int shard = shardOfStatement(query);
+    if (shard >= 0) {
+      return timedAsync(shard, db -> db.updateAsync(query), db -> {
+        db.update(query);
+        return null;
+      });
+    }
+    List<CompletableFuture<Void>> sent = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      sent.add(timedAsync(i, db -> db.updateAsync(query), db -> {
+        db.update(query);
+        return null;
+      }));
+    }
+    return CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0]));
+  }
+
+  /**
+   * Runs an INSERT statement without blocking, on the shard owning the row's shard key.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param values Values being inserted.
+   * @return Future completed once the row has been inserted. Completes with an
+   *     IllegalArgumentException if the table has a shard key that isn't being inserted.
+   */
+  @Override
+  public CompletableFuture<Void> insertAsync(
+      String database, String[] inserting, Object... values) {
+    int shard;
+    try {
+      shard = shardOf(database, keyIndex(database, inserting), values);
+    } catch (IllegalArgumentException e) {
+      return CompletableFuture.failedFuture(e);
+    }
+    return timedAsync(shard, db -> db.insertAsync(database, inserting, values), db -> {
+      db.insert(database, inserting, values);
+      return null;
+    });
+  }
+
+  /**
+   * Runs an INSERT statement on the shard owning the row's shard key.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param values Values being inserted.
+   * @throws IllegalArgumentException if the table has a shard key that isn't being inserted.
+   */
+  @Override
+  public void insert(String database, String[] inserting, Object... values)
+      throws IllegalArgumentException {
+    int shard = shardOf(database, keyIndex(database, inserting), values);
+    timed(shard, db -> {
+      db.insert(database, inserting, values);
+      return null;
+    });
+  }
+
+  /**
+   * Runs an INSERT statement on the shard owning the row's shard key, unless the row already
+   * exists there.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param values Values being inserted.
+   * @return {@code true} if the row was inserted, {@code false} if it already existed.
+   * @throws IllegalArgumentException if the table has a shard key that isn't being inserted.
+   */
+  @Override
+  public boolean insertIfAbsent(String database, String[] inserting, Object... values)
+      throws IllegalArgumentException {
+    int shard = shardOf(database, keyIndex(database, inserting), values);
+    return timed(shard, db -> db.insertIfAbsent(database, inserting, values));
+  }
+
+  /**
+   * Inserts many rows, grouped by shard. Each shard writes its rows in batches of the given
+   * size, and shards are written in parallel.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param rows Values for each row being inserted, in the same order as {@code inserting}.
+   * @param batchSize Maximum number of rows per batch.
+   * @return Number of rows written by each batch, in shard order.
+   * @throws IllegalArgumentException if the batch size is less than one, or the table has a shard
+   *     key that isn't being inserted.
+   */
+  @Override
+  public int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize)
+      throws IllegalArgumentException {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1!");
+    }
+    return insertGrouped(database, inserting, rows,
+        (db, group) -> db.insertBatch(database, inserting, group, batchSize));
+  }
+
+  /**
+   * Inserts many rows, grouped by shard, using each shard's configured batch size.
+   *
+   * @param database Database to Insert into
+   * @param inserting Data Keys to insert
+   * @param rows Values for each row being inserted, in the same order as {@code inserting}.
+   * @return Number of rows written by each batch, in shard order.
+   * @throws IllegalArgumentException if the table has a shard key that isn't being inserted.
+   */
+  @Override
+  public int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows)
+      throws IllegalArgumentException {
+    return insertGrouped(database, inserting, rows,
+        (db, group) -> db.insertBatch(database, inserting, group));
+  }
+
+  @Override
+  public void addCommitListener(Consumer<String> listener) {
+    for (Database shard : shards) {
+      shard.addCommitListener(listener);
+    }
+  }
+
+  /**
+   * Finds the shard owning a shard key value, as it is written. Values of a table's shard key are
+   * written in one form before they are looked up here.
+   *
+   * @param key Shard key value.
+   * @return Index of the shard.
+   */
+  public int shardOf(Object key) {
+    int i = Arrays.binarySearch(ring, hash(String.valueOf(key)));
+    if (i < 0) {
+      i = -i - 1;
+    }
+    return owners[i == ring.length ? 0 : i];
+  }
+
+  /**
+   * Gets the number of shards.
+   *
+   * @return Shard count.
+   */
+  public int getShardCount() {
+    return shards.size();
+  }
+
+  /**
+   * Gets the databases rows are spread over.
+   *
+   * @return Shards, in the order they were given.
+   */
+  public List<Database> getShards() {
+    return shards;
+  }
+
+  /**
+   * Gets the request counts and latency of every shard.
+   *
+   * @return Statistics of each shard, in shard order.
+   */
+  public List<ShardStats> getShardStats() {
+    List<ShardStats> out = new ArrayList<>();
+    for (int i = 0; i < metrics.length; i++) {
+      Metrics shard = metrics[i];
+      out.add(new ShardStats(
+          i,
+          shard.requests.sum(),
+          shard.errors.sum(),
+          shard.totalNanos.sum(),
+          shard.maxNanos.get()));
+    }
+    return Collections.unmodifiableList(out);
+  }
+
+  @Override
+  public boolean isCql() {
+    return cql;
+  }
+
+  /** Closes every shard. */
+  @Override
+  public void close() {
+    executor.shutdown();
+    for (Database shard : shards) {
+      shard.close();
+    }
+  }
+
+  /**
+   * Finds the shard a statement should run on.
+   *
+   * @param table Table the statement runs on.
+   * @param where WHERE statement.
+   * @return Index of the shard, or {@code -1} if it should run on every shard.
+   */
+  private int shardFor(String table, String where) {
+    Pattern pattern = keyPatterns.get(table.toLowerCase());
+    if (pattern == null) {
+      return 0;
+    }
+    // Blank out string literals, so nothing inside them is taken for a comparison.
+    String masked = maskLiterals(where);
+    if (SCATTER.matcher(masked).find()) {
+      return -1;
+    }
+    boolean text = keyTypes.get(table.toLowerCase()) == ColumnType.TEXT;
+    String key = null;
+    Matcher matcher = pattern.matcher(masked);
+    while (matcher.find()) {
+      String value;
+      if (matcher.group(1) != null) {
+        String literal = where.substring(matcher.start(1), matcher.end(1));
+        value = keyText(table, literal.replace("''", "'"));
+      } else {
+        // An unquoted word compared with a TEXT key is another column, not a value.
+        value = text ? null : keyText(table, matcher.group(2));
+      }
+      if (value == null || (key != null && !key.equals(value))) {
+        return -1;
+      }
+      key = value;
+    }
+    return key == null ? -1 : shardOf(key);
+  }
+
+  /**
+   * Replaces everything inside the string literals of a statement with spaces, keeping its length
+   * so positions still match.
+   *
+   * @param where WHERE statement.
+   * @return Statement with blank literals.
+   */
+  private static String maskLiterals(String where) {
+    char[] out = where.toCharArray();
+    boolean quoted = false;
+    for (int i = 0; i < out.length; i++) {
+      if (out[i] == '\'') {
+        if (quoted && i + 1 < out.length && out[i + 1] == '\'') {
+          // An escaped quote inside a literal.
+          out[i] = ' ';
+          out[++i] = ' ';
+        } else {
+          quoted = !quoted;
+        }
+      } else if (quoted) {
+        out[i] = ' ';
+      }
+    }
+    return new String(out);
+  }
+
+  /**
+   * Writes a shard key value in one form for the key's Data Type, so equal keys find the same shard
+   * however they are written. Without a known Data Type, whole numbers are still written in one
+   * form, since Snowflake IDs are the usual shard key.
+   *
+   * @param table Table the key belongs to.
+   * @param value Shard key value.
+   * @return Value as hashed, or {@code null} if it doesn't fit the key's Data Type.
+   */
+  private String keyText(String table, Object value) {
+    ColumnType type = keyTypes.get(table.toLowerCase());
+    String text = String.valueOf(value);
+    try {
+      if (type == ColumnType.TEXT) {
+        return text;
+      } else if (type == ColumnType.DOUBLE) {
+        double number = Double.parseDouble(text.trim());
+        return Double.toString(number == 0 ? 0.0 : number);
+      } else if (type == ColumnType.UUID) {
+        return java.util.UUID.fromString(text.trim()).toString();
+      }
+      return Long.toString(new BigDecimal(text.trim()).longValueExact());
+    } catch (ArithmeticException | IllegalArgumentException e) {
+      return type == null ? text : null;
+    }
+  }
+
+  /**
+   * Looks up the Data Type of a shard key.
+   *
+   * @param databases Database Setup.
+   * @param table Lowercase name of the table.
+   * @param column Shard key column.
+   * @return Data Type of the column, or {@code null} if it isn't set up.
+   */
+  private static ColumnType keyType(
+      LinkedHashMap<String, LinkedHashMap<String, String>> databases, String table, String column) {
+    for (Map.Entry<String, LinkedHashMap<String, String>> setup : databases.entrySet()) {
+      if (setup.getKey().equalsIgnoreCase(table)) {
+        for (Map.Entry<String, String> type : setup.getValue().entrySet()) {
+          if (type.getKey().equalsIgnoreCase(column)) {
+            return ColumnType.fromName(type.getValue());
+          }
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Finds the shard key within a list of columns.
+   *
+   * @param table Table being inserted into.
+   * @param inserting Columns being inserted.
+   * @return Index of the shard key column, or {@code -1} if the table has no shard key.
+   * @throws IllegalArgumentException if the shard key column isn't being inserted.
+   */
+  private int keyIndex(String table, String[] inserting) throws IllegalArgumentException {
+    String column = shardKeys.get(table.toLowerCase());
+    if (column == null) {
+      return -1;
+    }
+    for (int i = 0; i < inserting.length; i++) {
+      if (inserting[i].equalsIgnoreCase(column)) {
+        return i;
+      }
+    }
+    throw new IllegalArgumentException(
+        "Shard key " + column + " of " + table + " must be inserted!");
+  }
+
+  /**
+   * Finds the shard a row belongs to.
+   *
+   * @param table Table the row belongs to.
+   * @param keyIndex Index of the shard key column, or {@code -1} if the table has none.
+   * @param values Values of the row.
+   * @return Index of the shard.
+   */
+  private int shardOf(String table, int keyIndex, Object[] values) {
+    if (keyIndex < 0) {
+      return 0;
+    }
+    String key = keyText(table, values[keyIndex]);
+    // A value that doesn't fit the key's Data Type is left for the shard's database to reject.
+    return shardOf(key == null ? String.valueOf(values[keyIndex]) : key);
+  }
+
+  /**
+   * Splits rows by shard, and inserts each shard's rows in parallel.
+   *
+   * @param database Table to insert into.
+   * @param inserting Columns being inserted.
+   * @param rows Rows to insert.
+   * @param insert Inserts a group of rows into a shard.
+   * @return Number of rows written by each batch, in shard order.
+   */
+  private int[] insertGrouped(
+      String database,
+      String[] inserting,
+      Iterable<Object[]> rows,
+      BiFunction<Database, List<Object[]>, int[]> insert) {
+    int keyIndex = keyIndex(database, inserting);
+    List<List<Object[]>> groups = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      groups.add(new ArrayList<>());
+    }
+    for (Object[] row : rows) {
+      groups.get(shardOf(database, keyIndex, row)).add(row);
+    }
+
+    List<CompletableFuture<int[]>> sent = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      List<Object[]> group = groups.get(i);
+      if (!group.isEmpty()) {
+        int shard = i;
+        sent.add(CompletableFuture.supplyAsync(
+            () -> timed(shard, db -> insert.apply(db, group)), executor));
+      }
+    }
+    return join(sent).stream().flatMapToInt(Arrays::stream).toArray();
+  }
+
+  /**
+   * Runs a request on every shard in parallel.
+   *
+   * @param request Request to run on a shard.
+   * @param <T> Result of the request.
+   * @return Result from each shard, in shard order.
+   */
+  private <T> List<T> scatter(Function<Database, T> request) {
+    List<CompletableFuture<T>> sent = new ArrayList<>();
+    for (int i = 0; i < shards.size(); i++) {
+      int shard = i;
+      sent.add(CompletableFuture.supplyAsync(() -> timed(shard, request), executor));
+    }
+    return join(sent);
+  }
+
+  /**
+   * Waits for every request to finish.
+   *
+   * @param sent Requests that were sent.
+   * @param <T> Result of the requests.
+   * @return Result of each request, in the same order.
+   */
+  private static <T> List<T> join(List<CompletableFuture<T>> sent) {
+    try {
+      CompletableFuture.allOf(sent.toArray(new CompletableFuture<?>[0])).join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException(e.getCause());
+    }
+    List<T> out = new ArrayList<>();
+    for (CompletableFuture<T> future : sent) {
+      out.add(future.join());
+    }
+    return out;
+  }
+
+  /**
+   * Runs a request on a shard, and records how long it took.
+   *
+   * @param shard Index of the shard.
+   * @param request Request to run.
+   * @param <T> Result of the request.
+   * @return Result of the request.
+   */
+  private <T> T timed(int shard, Function<Database, T> request) {
+    long start = System.nanoTime();
+    boolean failed = true;
+    try {
+      T out = request.apply(shards.get(shard));
+      failed = false;
+      return out;
+    } finally {
+      record(shard, start, failed);
+    }
+  }
+
+  /**
+   * Runs a request on a shard without blocking, and records how long it took. A shard that is an
+   * AsyncDatabase runs it with its own asynchronous API, and any other shard runs the blocking
+   * form on this database's executor.
+   *
+   * @param shard Index of the shard.
+   * @param async Request to run on an asynchronous shard.
+   * @param blocking Request to run on any other shard.
+   * @param <T> Result of the request.
+   * @return Future of the result.
+   */
+  private <T> CompletableFuture<T> timedAsync(
+      int shard,
+      Function<AsyncDatabase, CompletableFuture<T>> async,
+      Function<Database, T> blocking) {
+    Database db = shards.get(shard);
+    if (!(db instanceof AsyncDatabase)) {
+      return CompletableFuture.supplyAsync(() -> timed(shard, blocking), executor);
+    }
+    long start = System.nanoTime();
+    CompletableFuture<T> sent;
+    try {
+      sent = async.apply((AsyncDatabase) db);
+    } catch (RuntimeException e) {
+      sent = CompletableFuture.failedFuture(e);
+    }
+    return sent.whenComplete((result, e) -> record(shard, start, e != null));
+  }
+
+  /**
+   * Records a finished request.
+   *
+   * @param shard Index of the shard.
+   * @param start When the request started, from {@link System#nanoTime()}.
+   * @param failed {@code true} if the request failed.
+   */
+  private void record(int shard, long start, boolean failed) {
+    Metrics counters = metrics[shard];
+    long nanos = System.nanoTime() - start;
+    if (failed) {
+      counters.errors.increment();
+    }
+    counters.requests.increment();
+    counters.totalNanos.add(nanos);
+    counters.maxNanos.accumulateAndGet(nanos, Math::max);
+  }
+
+  /**
+   * Hashes a shard key value, with 64 bit FNV-1a over its UTF-8 bytes. The result is mixed
+   * afterwards, since FNV alone spreads short, similar keys such as sequential ids poorly.
+   *
+   * @param key Value to hash.
+   * @return Hash of the value.
+   */
+  private static long hash(String key) {
+    long hash = FNV_OFFSET;
+    for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+      hash ^= b & 0xff;
+      hash *= FNV_PRIME;
+    }
+    hash ^= hash >>> 33;
+    hash *= 0xff51afd7ed558ccdL;
+    hash ^= hash >>> 33;
+    return hash;
+  }
+}
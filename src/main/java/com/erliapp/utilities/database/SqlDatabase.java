@@ -18,36 +18,44 @@ public class SqlDatabase extends SqliteDatabase {
       throws UnknownHostException {
     super(
         databases,
-        "jdbc:mysql://"
-            + prop.getProperty("cqlcontact")
-            + ":"
-            + prop.getProperty("cqlport")
-            + "/"
-            + prop.getProperty("cqlkeyspace")
-            + (prop.getProperty("cqlauth").equals("true")
-            ? "?user=" + prop.getProperty("cqluser")
-            + "&password="
-            + prop.getProperty("cqlpassword")
-            : "")
-    );
-  }
-
-      public SqlDatabase(
-        LinkedHashMap<String, LinkedHashMap<String, String>> databases, PropertiesEx prop, boolean ssl) {
-        super(
-            databases,
-            "jdbc:mariadb://"
+        DatabaseUtil.withParameter(
+            "jdbc:mysql://"
                 + prop.getProperty("cqlcontact")
                 + ":"
                 + prop.getProperty("cqlport")
                 + "/"
                 + prop.getProperty("cqlkeyspace")
-                + "?ssl=" + ssl
                 + (prop.getProperty("cqlauth").equals("true")
-                ? "&user=" + prop.getProperty("cqluser")
+                ? "?user=" + prop.getProperty("cqluser")
                 + "&password="
                 + prop.getProperty("cqlpassword")
-                : "")
+                : ""),
+            "rewriteBatchedStatements=true&useCursorFetch=true"
+        ),
+        prop
+    );
+  }
+
+      public SqlDatabase(
+        LinkedHashMap<String, LinkedHashMap<String, String>> databases, PropertiesEx prop, boolean ssl) {
+        super(
+            databases,
+            DatabaseUtil.withParameter(
+                "jdbc:mariadb://"
+                    + prop.getProperty("cqlcontact")
+                    + ":"
+                    + prop.getProperty("cqlport")
+                    + "/"
+                    + prop.getProperty("cqlkeyspace")
+                    + "?ssl=" + ssl
+                    + (prop.getProperty("cqlauth").equals("true")
+                    ? "&user=" + prop.getProperty("cqluser")
+                    + "&password="
+                    + prop.getProperty("cqlpassword")
+                    : ""),
+                "useBulkStmts=true"
+            ),
+            prop
         );
 
       }
@@ -10,12 +10,32 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-/** Sqlite Database System. */
+/**
+ * Sqlite Database System. Connections are pooled, and reused between queries.
+ *
+ * <p>With the performance profile enabled, the database runs in WAL mode with relaxed syncing and
+ * memory mapped reads. Writes then go through a single dedicated writer connection, and selects
+ * through a pool of read-only connections, so reads run in parallel with each other and with
+ * writes.
+ */
 public class SqliteDatabase implements Database {
 
   private final String url;
   private final LinkedHashMap<String, LinkedHashMap<String, String>> databases;
+  private final Map<String, TableSchema> schemas;
+  private final Map<String, String> primaryKeys = new HashMap<>();
+  private final ConnectionPool pool;
+  private final ConnectionPool writePool;
+  private final int batchSize;
+  private final int fetchSize;
+  private final WriteBehindBuffer writeBehind;
+  private final List<Consumer<String>> commitListeners = new CopyOnWriteArrayList<>();
 
   /**
    * Constructor.
@@ -25,12 +45,15 @@ public class SqliteDatabase implements Database {
    */
   public SqliteDatabase(
       LinkedHashMap<String, LinkedHashMap<String, String>> databases, PropertiesEx prop, Path path) {
-    url = "jdbc:sqlite:" + path.toAbsolutePath() + "/" + prop.getProperty("cqlkeyspace") + ".db";
-    this.databases = databases;
+    this(
+        databases,
+        "jdbc:sqlite:" + path.toAbsolutePath() + "/" + prop.getProperty("cqlkeyspace") + ".db",
+        prop
+    );
   }
 
   /**
-   * Creates a Database with a provided URL.
+   * Creates a Database with a provided URL, using the default pool settings.
    * @param databases Database Setup information
    * @param url URL to database.
    */
@@ -38,8 +61,88 @@ public class SqliteDatabase implements Database {
       LinkedHashMap<String, LinkedHashMap<String, String>> databases,
       String url
   ) {
-      this.url = url;
-      this.databases = databases;
+    this(databases, url, new PropertiesEx());
+  }
+
+  /**
+   * Creates a Database with a provided URL.
+   * @param databases Database Setup information
+   * @param url URL to database.
+   * @param prop Main Properties, used for the connection pool settings.
+   */
+  protected SqliteDatabase(
+      LinkedHashMap<String, LinkedHashMap<String, String>> databases,
+      String url,
+      PropertiesEx prop
+  ) {
+    this.url = url;
+    this.databases = databases;
+    this.schemas = TableSchema.compile(databases);
+    for (String table : databases.keySet()) {
+      String primaryKey = prop.getProperty("primaryKey." + table);
+      if (primaryKey != null) {
+        primaryKeys.put(table, primaryKey);
+      }
+    }
+    if (url.startsWith("jdbc:sqlite:")
+        && Boolean.parseBoolean(prop.getProperty("sqlitePerformance", "false"))) {
+      String mmapSize = prop.getProperty("sqliteMmapSize", "268435456");
+      String cacheSize = prop.getProperty("sqliteCacheSize", "-65536");
+      String[] common = {
+          "PRAGMA mmap_size = " + Long.parseLong(mmapSize),
+          "PRAGMA cache_size = " + Long.parseLong(cacheSize),
+          "PRAGMA temp_store = MEMORY",
+          "PRAGMA busy_timeout = " + Long.parseLong(prop.getProperty("sqliteBusyTimeout", "30000"))
+      };
+
+      // SQLite only allows one writer at a time, so more writer connections would only wait.
+      PropertiesEx writerProp = new PropertiesEx();
+      writerProp.putAll(prop);
+      writerProp.setProperty("poolMinSize", "1");
+      writerProp.setProperty("poolMaxSize", "1");
+      this.writePool = new ConnectionPool(() -> connect(
+          common, "PRAGMA journal_mode = WAL", "PRAGMA synchronous = NORMAL"), writerProp);
+      this.pool = new ConnectionPool(() -> connect(common, "PRAGMA query_only = ON"), prop);
+    } else {
+      this.pool = new ConnectionPool(() -> DriverManager.getConnection(this.url), prop);
+      this.writePool = pool;
+    }
+    this.batchSize = Integer.parseInt(
+        prop.getProperty("batchSize", "" + DatabaseUtil.DEFAULT_BATCH_SIZE));
+    this.fetchSize = Integer.parseInt(prop.getProperty("fetchSize", "1000"));
+    if (Boolean.parseBoolean(prop.getProperty("writeBehind", "false"))) {
+      this.writeBehind = new WriteBehindBuffer(
+          this::writeGroup,
+          Integer.parseInt(prop.getProperty("writeBehindQueueSize", "10000")),
+          Integer.parseInt(prop.getProperty("writeBehindRows", "" + batchSize)),
+          Long.parseLong(prop.getProperty("writeBehindMillis", "50")));
+    } else {
+      this.writeBehind = null;
+    }
+  }
+
+  /**
+   * Opens a connection, and sets it up with some PRAGMA statements.
+   *
+   * @param common Statements run on every connection.
+   * @param extra Statements run on this connection only.
+   * @return New connection.
+   * @throws SQLException If the connection could not be opened or set up.
+   */
+  private Connection connect(String[] common, String... extra) throws SQLException {
+    Connection conn = DriverManager.getConnection(url);
+    try (Statement stmt = conn.createStatement()) {
+      for (String pragma : common) {
+        stmt.execute(pragma);
+      }
+      for (String pragma : extra) {
+        stmt.execute(pragma);
+      }
+    } catch (SQLException e) {
+      conn.close();
+      throw e;
+    }
+    return conn;
   }
 
   /**
@@ -58,25 +161,32 @@ public class SqliteDatabase implements Database {
       for (String key : keys) {
         out.append("    ").append(key).append(" ").append(table.get(key)).append(",\n");
       }
+      if (primaryKeys.containsKey(item)) {
+        out.append("    PRIMARY KEY (").append(primaryKeys.get(item)).append("),\n");
+      }
       out = new StringBuilder(out.substring(0, out.length() - 2));
       out.append("\n");
       out.append(");");
       statements.add(out.toString());
     }
 
-    try (Connection conn = DriverManager.getConnection(url)) {
-      if (conn != null) {
+    try {
+      writePool.withConnection(pooled -> {
+        Connection conn = pooled.getConnection();
         DatabaseMetaData meta = conn.getMetaData();
         System.out.println("Driver name is: " + meta.getDriverName());
         System.out.println("A new database has been created.");
 
         for (String i : statements) {
           System.out.println(i);
-          Statement stmt = conn.createStatement();
-          stmt.execute(i);
-          stmt.close();
+          try (Statement stmt = conn.createStatement()) {
+            stmt.execute(i);
+          }
         }
-      }
+        return null;
+      });
+      writePool.fill();
+      pool.fill();
     } catch (SQLException e) {
       e.printStackTrace();
     }
@@ -93,52 +203,251 @@ public class SqliteDatabase implements Database {
   @Override
   public DatabaseSelection select(String[] selecting, String database, String where) {
 
-    try (Connection conn = DriverManager.getConnection(url)) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    StatementKey key = new StatementKey(StatementKey.Kind.SELECT, database, selecting, where);
 
-      StringBuilder selected = new StringBuilder();
-      for (String item : selecting) {
-        selected.append(item).append(", ");
-      }
-      selected = new StringBuilder(selected.substring(0, selected.length() - 2));
-      String whereStatement = where;
-      if (whereStatement.length() == 0) {
-        whereStatement = ";";
-      } else if (whereStatement.startsWith("LIMIT")) {
-        whereStatement = " " + whereStatement + ";";
-      } else {
-        whereStatement = " WHERE " + whereStatement + ";";
-      }
-      String query = "SELECT " + selected + " FROM " + database + whereStatement;
-      Statement stmt = conn.createStatement();
-      ResultSet rs = stmt.executeQuery(query);
-
-      LinkedHashMap<String, String> table = databases.get(database);
-
-      DatabaseSelection out = new DatabaseSelection();
-      while (rs.next()) {
-        out.addRow();
-        for (String i : selecting) {
-          if (table.get(i).equalsIgnoreCase("bigint")) {
-            out.addItem(i, new Row<>(Long.class, rs.getLong(i)));
-          } else if (table.get(i).equalsIgnoreCase("text")) {
-            out.addItem(i, new Row<>(String.class, rs.getString(i)));
-          } else if (table.get(i).equalsIgnoreCase("double")) {
-            out.addItem(i, new Row<>(Double.class, rs.getDouble(i)));
-          } else if (table.get(i).equalsIgnoreCase("uuid")) {
-            out.addItem(i, new Row<>(UUID.class, UUID.fromString(rs.getString(i))));
+    try {
+      return pool.withConnection(pooled -> {
+        PreparedStatement stmt = pooled.prepare(key, () -> selectQuery(selecting, database, where));
+        try (ResultSet rs = stmt.executeQuery()) {
+
+          DatabaseSelection out = new DatabaseSelection();
+          while (rs.next()) {
+            out.addRow(readRow(rs, selecting, types));
           }
+          return out;
         }
-      }
+      });
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
 
-      stmt.close();
-      conn.close();
+  /**
+   * Runs the SQL SELECT statement, binding the condition's values. The statement is prepared once
+   * per shape of condition, and reused with new values.
+   *
+   * @param selecting Columns to Select
+   * @param database Table to select from
+   * @param condition Typed WHERE statement.
+   * @return List of Rows and Columns
+   */
+  @Override
+  public DatabaseSelection select(String[] selecting, String database, Condition condition) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    ColumnType[] valueTypes = TableSchema.types(schemas, database, condition.getColumns());
+    Object[] values = condition.getValues();
+    String where = condition.getShape();
+    StatementKey key = new StatementKey(StatementKey.Kind.SELECT_BOUND, database, selecting, where);
+
+    try {
+      return pool.withConnection(pooled -> {
+        PreparedStatement stmt = pooled.prepare(key, () -> selectQuery(selecting, database, where));
+        bindValues(stmt, valueTypes, values);
+        if (condition.getLimit() >= 0) {
+          stmt.setInt(values.length + 1, condition.getLimit());
+        }
+        try (ResultSet rs = stmt.executeQuery()) {
+
+          DatabaseSelection out = new DatabaseSelection();
+          while (rs.next()) {
+            out.addRow(readRow(rs, selecting, types));
+          }
+          return out;
+        }
+      });
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Selects a page of rows whose id lies in a range, in order of id. The range and page size are
+   * bound as parameters, so every page of a scan reuses the same prepared statement.
+   *
+   * @param selecting Columns to Select
+   * @param database Table to select from
+   * @param idColumn Column holding the ids.
+   * @param fromId Smallest id to select.
+   * @param toId Largest id to select.
+   * @param pageSize Most rows to select.
+   * @return List of Rows and Columns, ordered by id.
+   */
+  @Override
+  public DatabaseSelection selectRange(
+      String[] selecting, String database, String idColumn, long fromId, long toId, int pageSize) {
+    if (pageSize < 1) {
+      throw new IllegalArgumentException("Page size must be at least 1!");
+    }
+    if (fromId > toId) {
+      return new DatabaseSelection();
+    }
+    String[] columns = DatabaseUtil.withColumn(selecting, idColumn);
+    ColumnType[] types = TableSchema.types(schemas, database, columns);
+    String where = idColumn + " >= ? AND " + idColumn + " <= ? ORDER BY " + idColumn + " LIMIT ?";
+    StatementKey key = new StatementKey(StatementKey.Kind.SELECT_RANGE, database, columns, where);
+
+    try {
+      return pool.withConnection(pooled -> {
+        PreparedStatement stmt = pooled.prepare(key, () -> selectQuery(columns, database, where));
+        stmt.setLong(1, fromId);
+        stmt.setLong(2, toId);
+        stmt.setInt(3, pageSize);
+        try (ResultSet rs = stmt.executeQuery()) {
+
+          DatabaseSelection out = new DatabaseSelection();
+          while (rs.next()) {
+            out.addRow(readRow(rs, columns, types));
+          }
+          return out;
+        }
+      });
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Runs the SQL SELECT statement, and stores the result by column.
+   *
+   * @param selecting Columns to Select
+   * @param database Table to select from
+   * @param where SQL Where statement.
+   * @return Columns of the result
+   */
+  @Override
+  public ColumnarSelection selectColumnar(String[] selecting, String database, String where) {
+
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    StatementKey key = new StatementKey(StatementKey.Kind.SELECT, database, selecting, where);
 
-      return out;
+    try {
+      return pool.withConnection(pooled -> {
+        PreparedStatement stmt = pooled.prepare(key, () -> selectQuery(selecting, database, where));
+        try (ResultSet rs = stmt.executeQuery()) {
+
+          ColumnarSelection out = new ColumnarSelection(selecting, types);
+          while (rs.next()) {
+            out.addRow();
+            for (int i = 0; i < types.length; i++) {
+              types[i].read(rs, i + 1, out, i);
+            }
+          }
+          return out;
+        }
+      });
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
   }
 
+  /**
+   * Runs the SQL SELECT statement, and streams the rows as they are read. The query runs with a
+   * forward-only cursor and the configured fetch size, so only a few rows are held in memory at
+   * once. The stream keeps its pooled connection until it is closed.
+   *
+   * @param selecting Columns to Select
+   * @param database Table to select from
+   * @param where SQL Where statement.
+   * @return A lazily read Stream of Rows and Columns
+   */
+  @Override
+  public Stream<Map<String, Row<?>>> selectStream(
+      String[] selecting, String database, String where) {
+    ColumnType[] types = TableSchema.types(schemas, database, selecting);
+    ConnectionPool.PooledConnection pooled;
+    PreparedStatement stmt;
+    ResultSet rs;
+    try {
+      pooled = pool.borrow();
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+    try {
+      stmt = pooled.getConnection().prepareStatement(
+          selectQuery(selecting, database, where),
+          ResultSet.TYPE_FORWARD_ONLY,
+          ResultSet.CONCUR_READ_ONLY
+      );
+      stmt.setFetchSize(fetchSize);
+      rs = stmt.executeQuery();
+    } catch (SQLException e) {
+      pool.release(pooled, true);
+      throw new RuntimeException(e);
+    }
+
+    boolean[] failed = {false};
+    Spliterator<Map<String, Row<?>>> rows =
+        new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE, Spliterator.ORDERED) {
+          @Override
+          public boolean tryAdvance(Consumer<? super Map<String, Row<?>>> action) {
+            try {
+              if (!rs.next()) {
+                return false;
+              }
+              action.accept(readRow(rs, selecting, types));
+              return true;
+            } catch (SQLException e) {
+              failed[0] = true;
+              throw new RuntimeException(e);
+            }
+          }
+        };
+
+    return StreamSupport.stream(rows, false).onClose(() -> {
+      try {
+        stmt.close();
+      } catch (SQLException e) {
+        failed[0] = true;
+      } finally {
+        pool.release(pooled, failed[0]);
+      }
+    });
+  }
+
+  /**
+   * Parses the current row of a result into the correct datatypes.
+   *
+   * @param rs Result positioned on the row to read.
+   * @param selecting Columns that were selected.
+   * @param types Data Type of each selected column.
+   * @return Column values, by column name.
+   * @throws SQLException If a value could not be read.
+   */
+  private static Map<String, Row<?>> readRow(
+      ResultSet rs, String[] selecting, ColumnType[] types) throws SQLException {
+    Map<String, Row<?>> out = new LinkedHashMap<>();
+    for (int i = 0; i < types.length; i++) {
+      out.put(selecting[i], types[i].read(rs, i + 1));
+    }
+    return out;
+  }
+
+  /**
+   * Builds a SQL SELECT statement.
+   *
+   * @param selecting Columns to Select
+   * @param database Table to select from
+   * @param where SQL Where statement.
+   * @return SELECT query.
+   */
+  private static String selectQuery(String[] selecting, String database, String where) {
+    StringBuilder selected = new StringBuilder();
+    for (String item : selecting) {
+      selected.append(item).append(", ");
+    }
+    selected = new StringBuilder(selected.substring(0, selected.length() - 2));
+    String whereStatement = where;
+    if (whereStatement.length() == 0) {
+      whereStatement = ";";
+    } else if (whereStatement.startsWith("LIMIT")) {
+      whereStatement = " " + whereStatement + ";";
+    } else {
+      whereStatement = " WHERE " + whereStatement + ";";
+    }
+    return "SELECT " + selected + " FROM " + database + whereStatement;
+  }
+
   /**
    * Runs a given SQL query with no output.
    *
@@ -146,17 +455,46 @@ public class SqliteDatabase implements Database {
    */
   @Override
   public void update(String query) {
-    try (Connection conn = DriverManager.getConnection(url)) {
-      Statement stmt = conn.createStatement();
-      stmt.execute(query + ";");
-      stmt.close();
+    flush();
+    try {
+      writePool.withConnection(pooled -> {
+        try (Statement stmt = pooled.getConnection().createStatement()) {
+          stmt.execute(query + ";");
+        }
+        return null;
+      });
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
   }
 
   /**
-   * Runs the SQL INSERT function.
+   * Runs an UPDATE statement, and reports whether it changed any rows.
+   *
+   * @param query UPDATE statement to run.
+   * @return {@code true} if at least one row changed.
+   */
+  @Override
+  public boolean tryUpdate(String query) {
+    flush();
+    try {
+      return writePool.withConnection(pooled -> {
+        try (Statement stmt = pooled.getConnection().createStatement()) {
+          return stmt.executeUpdate(query + ";") > 0;
+        }
+      });
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Runs the SQL INSERT function. The prepared statement is cached per connection, so repeated
+   * inserts into the same columns don't rebuild or re-parse the query.
+   *
+   * <p>With write-behind enabled, the row is only queued, and is committed later together with
+   * other rows. Use {@link #insertDurable(String, String[], Object...)} to know when it has been.
+   * If a queued row fails, the error is thrown from the next insert or {@link #flush()}.
    *
    * @param database Table to Insert into
    * @param inserting Columns to Insert
@@ -164,34 +502,303 @@ public class SqliteDatabase implements Database {
    */
   @Override
   public void insert(String database, String[] inserting, Object... values) {
-    try (Connection conn = DriverManager.getConnection(url)) {
-
-      String query = DatabaseUtil.setupInsertingData(database, inserting);
-      PreparedStatement stmt = conn.prepareStatement(query);
-      LinkedHashMap<String, String> table = databases.get(database);
-      Object[] valuesArr = Arrays.stream(values).toArray();
-      for (int i = 0; i < inserting.length; i++) {
-        if (table.get(inserting[i]).equalsIgnoreCase("bigint")) {
-          stmt.setLong(i + 1, (Long) valuesArr[i]);
-        } else if (table.get(inserting[i]).equalsIgnoreCase("text")) {
-          stmt.setString(i + 1, (String) valuesArr[i]);
-        } else if (table.get(inserting[i]).equalsIgnoreCase("double")) {
-          stmt.setDouble(i + 1, (Double) valuesArr[i]);
-        } else if (table.get(inserting[i]).equalsIgnoreCase("uuid")) {
-          stmt.setString(i + 1, valuesArr[i].toString());
+    ColumnType[] types = TableSchema.types(schemas, database, inserting);
+    if (writeBehind != null) {
+      writeBehind.post(database, inserting, types, values);
+      return;
+    }
+    StatementKey key = new StatementKey(StatementKey.Kind.INSERT, database, inserting, null);
+
+    try {
+      writePool.withConnection(pooled -> {
+        PreparedStatement stmt =
+            pooled.prepare(key, () -> DatabaseUtil.setupInsertingData(database, inserting));
+        bindValues(stmt, types, values);
+        stmt.executeUpdate();
+        return null;
+      });
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Runs the SQL INSERT function, ignoring the row if it conflicts with an existing primary key.
+   * Uses {@code INSERT OR IGNORE} on SQLite, and {@code INSERT IGNORE} on MySQL and MariaDB. Rows
+   * queued by write-behind inserts are written first.
+   *
+   * @param database Table to Insert into
+   * @param inserting Columns to Insert
+   * @param values Values to place in Columns
+   * @return {@code true} if the row was inserted, {@code false} if it already existed.
+   */
+  @Override
+  public boolean insertIfAbsent(String database, String[] inserting, Object... values) {
+    flush();
+    ColumnType[] types = TableSchema.types(schemas, database, inserting);
+    StatementKey key =
+        new StatementKey(StatementKey.Kind.INSERT_IF_ABSENT, database, inserting, null);
+    String insert =
+        url.startsWith("jdbc:sqlite:") ? "INSERT OR IGNORE INTO " : "INSERT IGNORE INTO ";
+
+    try {
+      return writePool.withConnection(pooled -> {
+        PreparedStatement stmt =
+            pooled.prepare(key, () -> DatabaseUtil.setupInsertingData(insert, database, inserting));
+        bindValues(stmt, types, values);
+        return stmt.executeUpdate() > 0;
+      });
+    } catch (SQLException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /**
+   * Runs the SQL INSERT function, and returns a future completed once the row has been committed.
+   * Without write-behind, the row is inserted straight away and the future is already complete.
+   *
+   * @param database Table to Insert into
+   * @param inserting Columns to Insert
+   * @param values Values to place in Columns
+   * @return Future completed once the row is committed, or completed exceptionally if it failed.
+   */
+  public CompletableFuture<Void> insertDurable(
+      String database, String[] inserting, Object... values) {
+    if (writeBehind == null) {
+      try {
+        insert(database, inserting, values);
+        return CompletableFuture.completedFuture(null);
+      } catch (RuntimeException e) {
+        return CompletableFuture.failedFuture(e);
+      }
+    }
+    ColumnType[] types = TableSchema.types(schemas, database, inserting);
+    return writeBehind.add(database, inserting, types, values);
+  }
+
+  /**
+   * Waits until every row queued by write-behind inserts has been committed. Selects don't wait
+   * for queued rows, so call this first to read them. Does nothing without write-behind.
+   *
+   * @throws RuntimeException if a row queued by {@link #insert(String, String[], Object...)}
+   *     failed to be committed.
+   */
+  public void flush() {
+    if (writeBehind != null) {
+      writeBehind.flush();
+    }
+  }
+
+  /**
+   * Registers a listener for write-behind inserts, called once their rows are committed.
+   *
+   * @param listener Called with the name of each table written to.
+   */
+  @Override
+  public void addCommitListener(Consumer<String> listener) {
+    commitListeners.add(listener);
+  }
+
+  /**
+   * Writes a group of write-behind inserts in one transaction. Consecutive rows for the same
+   * columns are sent as one JDBC batch.
+   *
+   * @param group Inserts to write, in order.
+   * @throws SQLException If any insert fails. Nothing in the group is committed.
+   */
+  private void writeGroup(List<WriteBehindBuffer.Insert> group) throws SQLException {
+    writePool.withConnection(pooled -> {
+      Connection conn = pooled.getConnection();
+      conn.setAutoCommit(false);
+      PreparedStatement stmt = null;
+      StatementKey current = null;
+      try {
+        for (WriteBehindBuffer.Insert insert : group) {
+          StatementKey key =
+              new StatementKey(StatementKey.Kind.INSERT, insert.table, insert.columns, null);
+          if (!key.equals(current)) {
+            if (stmt != null) {
+              stmt.executeBatch();
+            }
+            stmt = pooled.prepare(
+                key, () -> DatabaseUtil.setupInsertingData(insert.table, insert.columns));
+            current = key;
+          }
+          bindValues(stmt, insert.types, insert.values);
+          stmt.addBatch();
+        }
+        stmt.executeBatch();
+      } catch (SQLException | RuntimeException e) {
+        // The statement is cached, so it must not keep the failed batch.
+        if (stmt != null) {
+          stmt.clearBatch();
+        }
+        throw e;
+      }
+      conn.commit();
+      conn.setAutoCommit(true);
+      return null;
+    });
+
+    if (!commitListeners.isEmpty()) {
+      Set<String> tables = new LinkedHashSet<>();
+      for (WriteBehindBuffer.Insert insert : group) {
+        tables.add(insert.table);
+      }
+      for (String table : tables) {
+        for (Consumer<String> listener : commitListeners) {
+          listener.accept(table);
         }
       }
-      stmt.executeUpdate();
-      stmt.close();
+    }
+  }
+
+  /**
+   * Inserts many rows into the same columns. Each batch is sent with
+   * {@link PreparedStatement#executeBatch()} and committed as one transaction, so a batch costs a
+   * single round trip and a single commit. Batches that were already committed stay committed if
+   * a later batch fails.
+   *
+   * @param database Table to Insert into
+   * @param inserting Columns to Insert
+   * @param rows Values for each row, in the same order as {@code inserting}
+   * @param batchSize Maximum number of rows per batch
+   * @return Number of rows written by each batch.
+   */
+  @Override
+  public int[] insertBatch(
+      String database, String[] inserting, Iterable<Object[]> rows, int batchSize) {
+    if (batchSize < 1) {
+      throw new IllegalArgumentException("Batch size must be at least 1!");
+    }
+    flush();
+    ColumnType[] types = TableSchema.types(schemas, database, inserting);
+    StatementKey key = new StatementKey(StatementKey.Kind.INSERT, database, inserting, null);
+
+    try {
+      return writePool.withConnection(pooled -> {
+        Connection conn = pooled.getConnection();
+        PreparedStatement stmt =
+            pooled.prepare(key, () -> DatabaseUtil.setupInsertingData(database, inserting));
+        List<Integer> counts = new ArrayList<>();
+        conn.setAutoCommit(false);
+
+        int inBatch = 0;
+        try {
+          for (Object[] row : rows) {
+            bindValues(stmt, types, row);
+            stmt.addBatch();
+            inBatch++;
+            if (inBatch == batchSize) {
+              counts.add(executeBatch(conn, stmt, inBatch));
+              inBatch = 0;
+            }
+          }
+          if (inBatch > 0) {
+            counts.add(executeBatch(conn, stmt, inBatch));
+          }
+        } catch (SQLException | RuntimeException e) {
+          // The statement is cached, so it must not keep the failed batch.
+          stmt.clearBatch();
+          throw e;
+        }
+
+        conn.setAutoCommit(true);
+        return counts.stream().mapToInt(Integer::intValue).toArray();
+      });
     } catch (SQLException e) {
       throw new RuntimeException(e);
     }
   }
 
   /**
-   * Closes a SQL connection (Not used for this.)
+   * Inserts many rows into the same columns, using the batch size set in the
+   * {@link DatabaseBuilder}.
+   *
+   * @param database Table to Insert into
+   * @param inserting Columns to Insert
+   * @param rows Values for each row, in the same order as {@code inserting}
+   * @return Number of rows written by each batch.
+   */
+  @Override
+  public int[] insertBatch(String database, String[] inserting, Iterable<Object[]> rows) {
+    return insertBatch(database, inserting, rows, batchSize);
+  }
+
+  /**
+   * Runs and commits a batch of inserts.
+   *
+   * @param conn Connection the batch runs on.
+   * @param stmt Statement holding the batch.
+   * @param rows Number of rows in the batch.
+   * @return Number of rows written.
+   * @throws SQLException If the batch fails. The batch is rolled back when the connection is
+   *     handed back to the pool.
+   */
+  private static int executeBatch(Connection conn, PreparedStatement stmt, int rows)
+      throws SQLException {
+    int[] results = stmt.executeBatch();
+    conn.commit();
+
+    // Drivers that rewrite a batch into one statement don't report per-row counts.
+    int written = 0;
+    for (int result : results) {
+      if (result == Statement.SUCCESS_NO_INFO) {
+        return rows;
+      }
+      written += result;
+    }
+    return written;
+  }
+
+  /**
+   * Binds the values of an INSERT statement, or of a condition.
+   *
+   * @param stmt Statement to bind to.
+   * @param types Data Type of each column being bound.
+   * @param values Values to place in Columns
+   * @throws SQLException If a value could not be bound.
+   */
+  private static void bindValues(PreparedStatement stmt, ColumnType[] types, Object[] values)
+      throws SQLException {
+    for (int i = 0; i < types.length; i++) {
+      types[i].bind(stmt, i + 1, values[i]);
+    }
+  }
+
+  /**
+   * Gets the state of this database's connection pool. With the performance profile enabled, this
+   * is the pool used for selects, see {@link #getWriterPoolStats()} for the writer connection.
+   *
+   * @return Pool statistics.
+   */
+  @Override
+  public PoolStats getPoolStats() {
+    return pool.getStats();
+  }
+
+  /**
+   * Gets the state of the connection pool used for writes. Without the performance profile, this
+   * is the same pool as {@link #getPoolStats()}.
+   *
+   * @return Pool statistics.
+   */
+  public PoolStats getWriterPoolStats() {
+    return writePool.getStats();
+  }
+
+  /**
+   * Closes the connection pool, after committing any rows queued by write-behind inserts.
+   * Connections still in use are closed as they are handed back.
    */
   @Override
   public void close() {
+    if (writeBehind != null) {
+      writeBehind.close();
+    }
+    if (writePool != pool) {
+      writePool.close();
+    }
+    pool.close();
   }
 }
@@ -0,0 +1,92 @@
+package com.erliapp.utilities.database;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Identifies the shape of a statement: what kind of statement it is, the table it runs on, the
+ * columns it uses, and anything after them. Two statements with the same key share the same query,
+ * so a prepared statement can be reused between them.
+ */
+class StatementKey {
+
+  /** Kind of statement. */
+  enum Kind {
+    SELECT,
+    SELECT_RANGE,
+    SELECT_BOUND,
+    INSERT,
+    INSERT_IF_ABSENT
+  }
+
+  private final Kind kind;
+  private final String table;
+  private final String[] columns;
+  private final String suffix;
+  private final int hash;
+
+  /**
+   * Constructor. The columns array is not copied, see {@link #copy()}.
+   *
+   * @param kind Kind of statement.
+   * @param table Table the statement runs on.
+   * @param columns Columns the statement uses.
+   * @param suffix Anything after the columns, such as a WHERE statement. May be {@code null}.
+   */
+  StatementKey(Kind kind, String table, String[] columns, String suffix) {
+    this.kind = kind;
+    this.table = table;
+    this.columns = columns;
+    this.suffix = suffix;
+    this.hash = 31 * (31 * (31 * kind.hashCode() + table.hashCode()) + Arrays.hashCode(columns))
+        + Objects.hashCode(suffix);
+  }
+
+  /**
+   * Copies the key, so it is safe to store even if the caller changes its columns array later.
+   *
+   * @return A copy of this key.
+   */
+  StatementKey copy() {
+    return new StatementKey(kind, table, columns.clone(), suffix);
+  }
+
+  /**
+   * Gets the table the statement runs on.
+   *
+   * @return Table name.
+   */
+  String getTable() {
+    return table;
+  }
+
+  /**
+   * Gets the columns the statement uses.
+   *
+   * @return Column names.
+   */
+  String[] getColumns() {
+    return columns;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof StatementKey)) {
+      return false;
+    }
+    StatementKey other = (StatementKey) o;
+    return hash == other.hash
+        && kind == other.kind
+        && table.equals(other.table)
+        && Arrays.equals(columns, other.columns)
+        && Objects.equals(suffix, other.suffix);
+  }
+
+  @Override
+  public int hashCode() {
+    return hash;
+  }
+}
@@ -0,0 +1,63 @@
+package com.erliapp.utilities.database;
+
+import java.util.UUID;
+
+/** Row holding a String. */
+public final class StringRow extends Row<String> {
+
+  private static final StringRow NULL = new StringRow(null);
+  private static final StringRow EMPTY = new StringRow("");
+
+  private final String value;
+
+  /**
+   * Constructor.
+   *
+   * @param value Value to hold.
+   */
+  private StringRow(String value) {
+    super(Type.STRING);
+    this.value = value;
+  }
+
+  /**
+   * Gets a Row holding a String, shared for {@code null} and empty Strings.
+   *
+   * @param value Value to hold, may be {@code null}.
+   * @return Row holding the value.
+   */
+  public static StringRow of(String value) {
+    if (value == null) {
+      return NULL;
+    }
+    if (value.isEmpty()) {
+      return EMPTY;
+    }
+    return new StringRow(value);
+  }
+
+  @Override
+  public String getItem() {
+    return value;
+  }
+
+  @Override
+  public long getLong() {
+    return parseLong(value);
+  }
+
+  @Override
+  public Double getDouble() {
+    return parseDouble(value);
+  }
+
+  @Override
+  public UUID getUUID() {
+    return parseUuid(value);
+  }
+
+  @Override
+  public String getString() {
+    return value;
+  }
+}
@@ -0,0 +1,100 @@
+package com.erliapp.utilities.database;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Compiled form of a table set up in the {@link DatabaseBuilder}. Resolves a list of columns into
+ * their {@link ColumnType}s once, and caches the result for every following query of the same
+ * shape.
+ */
+class TableSchema {
+
+  private final String name;
+  private final LinkedHashMap<String, ColumnType> columns;
+  private final ConcurrentHashMap<List<String>, ColumnType[]> shapes = new ConcurrentHashMap<>();
+
+  /**
+   * Constructor.
+   *
+   * @param name Name of the table.
+   * @param columns Data Type of each column, by name.
+   */
+  TableSchema(String name, LinkedHashMap<String, String> columns) {
+    this.name = name;
+    this.columns = new LinkedHashMap<>();
+    for (Map.Entry<String, String> column : columns.entrySet()) {
+      this.columns.put(column.getKey(), ColumnType.fromName(column.getValue()));
+    }
+  }
+
+  /**
+   * Compiles every table of a database setup.
+   *
+   * @param databases Database Setup.
+   * @return Compiled tables, by name.
+   */
+  static Map<String, TableSchema> compile(
+      LinkedHashMap<String, LinkedHashMap<String, String>> databases) {
+    Map<String, TableSchema> out = new LinkedHashMap<>();
+    for (Map.Entry<String, LinkedHashMap<String, String>> table : databases.entrySet()) {
+      out.put(table.getKey(), new TableSchema(table.getKey(), table.getValue()));
+    }
+    return out;
+  }
+
+  /**
+   * Looks up the Data Types of some columns of a table.
+   *
+   * @param schemas Compiled tables, by name.
+   * @param table Name of the table.
+   * @param columns Columns to look up.
+   * @return Data Type of each column, in the same order.
+   * @throws IllegalArgumentException if the table or a column doesn't exist.
+   */
+  static ColumnType[] types(Map<String, TableSchema> schemas, String table, String[] columns)
+      throws IllegalArgumentException {
+    TableSchema schema = schemas.get(table);
+    if (schema == null) {
+      throw new IllegalArgumentException("Table " + table + " is not set up!");
+    }
+    return schema.types(columns);
+  }
+
+  /**
+   * Looks up the Data Types of some columns. The returned array is shared, and must not be
+   * changed.
+   *
+   * @param selecting Columns to look up.
+   * @return Data Type of each column, in the same order.
+   * @throws IllegalArgumentException if a column isn't part of the table.
+   */
+  ColumnType[] types(String[] selecting) throws IllegalArgumentException {
+    ColumnType[] types = shapes.get(Arrays.asList(selecting));
+    if (types != null) {
+      return types;
+    }
+
+    types = new ColumnType[selecting.length];
+    for (int i = 0; i < selecting.length; i++) {
+      types[i] = columns.get(selecting[i]);
+      if (types[i] == null) {
+        throw new IllegalArgumentException("Column " + selecting[i] + " is not in " + name + "!");
+      }
+    }
+    shapes.putIfAbsent(List.of(selecting.clone()), types);
+    return types;
+  }
+
+  /**
+   * Gets the names of every column, in the order they were set up.
+   *
+   * @return Column names.
+   */
+  String[] getColumns() {
+    return columns.keySet().toArray(new String[0]);
+  }
+}
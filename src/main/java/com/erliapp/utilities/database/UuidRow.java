@@ -0,0 +1,56 @@
+package com.erliapp.utilities.database;
+
+import java.util.UUID;
+
+/** Row holding a UUID. */
+public final class UuidRow extends Row<UUID> {
+
+  private static final UuidRow NULL = new UuidRow(null);
+
+  private final UUID value;
+
+  /**
+   * Constructor.
+   *
+   * @param value Value to hold.
+   */
+  private UuidRow(UUID value) {
+    super(Type.UUID);
+    this.value = value;
+  }
+
+  /**
+   * Gets a Row holding a UUID, shared for {@code null}.
+   *
+   * @param value Value to hold, may be {@code null}.
+   * @return Row holding the value.
+   */
+  public static UuidRow of(UUID value) {
+    return value == null ? NULL : new UuidRow(value);
+  }
+
+  @Override
+  public UUID getItem() {
+    return value;
+  }
+
+  @Override
+  public long getLong() {
+    return -1L;
+  }
+
+  @Override
+  public Double getDouble() {
+    return -1.0;
+  }
+
+  @Override
+  public UUID getUUID() {
+    return value;
+  }
+
+  @Override
+  public String getString() {
+    return value == null ? null : value.toString();
+  }
+}
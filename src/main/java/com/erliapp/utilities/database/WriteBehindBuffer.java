@@ -0,0 +1,315 @@
+package com.erliapp.utilities.database;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Buffers inserts, and writes them from a single thread in groups. A group is written once it has
+ * a set number of rows, or once its first row has waited a set time, whichever comes first. This
+ * turns many small commits into a few large ones.
+ *
+ * <p>The queue is bounded, so inserting blocks once the writer falls too far behind.
+ *
+ * <p>Inserts queued with {@link #post} have no future to report failures through. The first one
+ * that fails is kept, and thrown from the next call to {@link #post} or {@link #flush()}.
+ */
+class WriteBehindBuffer {
+
+  /** Writes a group of inserts. */
+  interface Writer {
+    /**
+     * Writes every insert of a group, in order, as a single transaction.
+     *
+     * @param group Inserts to write.
+     * @throws SQLException If the group could not be written. Nothing in it is committed.
+     */
+    void write(List<Insert> group) throws SQLException;
+  }
+
+  /** A buffered insert, completed once it has been committed. */
+  static class Insert {
+    final String table;
+    final String[] columns;
+    final ColumnType[] types;
+    final Object[] values;
+    final boolean watched;
+    final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    /**
+     * Constructor.
+     *
+     * @param table Table to insert into, or {@code null} for a flush marker.
+     * @param columns Columns to insert.
+     * @param types Data Type of each column.
+     * @param values Values to insert.
+     * @param watched {@code false} if nobody waits on the future, so a failure must be kept.
+     */
+    Insert(
+        String table, String[] columns, ColumnType[] types, Object[] values, boolean watched) {
+      this.table = table;
+      this.columns = columns;
+      this.types = types;
+      this.values = values;
+      this.watched = watched;
+    }
+
+    /**
+     * Checks if this only marks a point to flush up to.
+     *
+     * @return {@code true} for a flush marker.
+     */
+    boolean isMarker() {
+      return table == null;
+    }
+  }
+
+  private final BlockingQueue<Insert> queue;
+  private final Writer writer;
+  private final int maxRows;
+  private final long maxDelayNanos;
+  private final Thread thread;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  // Held shared while queueing, and exclusively to close, so nothing lands after the writer stops.
+  private final ReadWriteLock closing = new ReentrantReadWriteLock();
+  private volatile boolean closed = false;
+
+  /**
+   * Constructor. Starts the writer thread.
+   *
+   * @param writer Writes each group.
+   * @param capacity Maximum number of inserts waiting to be written.
+   * @param maxRows Maximum number of rows per group.
+   * @param maxDelayMillis Maximum time the first row of a group waits before it is written.
+   * @throws IllegalArgumentException if a size is less than one, or the delay is negative.
+   */
+  WriteBehindBuffer(Writer writer, int capacity, int maxRows, long maxDelayMillis)
+      throws IllegalArgumentException {
+    if (capacity < 1 || maxRows < 1) {
+      throw new IllegalArgumentException("Write-behind sizes must be at least 1!");
+    }
+    if (maxDelayMillis < 0) {
+      throw new IllegalArgumentException("Write-behind delay can't be negative!");
+    }
+    this.queue = new ArrayBlockingQueue<>(capacity);
+    this.writer = writer;
+    this.maxRows = maxRows;
+    this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMillis);
+    this.thread = new Thread(this::run, "database-write-behind");
+    this.thread.setDaemon(true);
+    this.thread.start();
+  }
+
+  /**
+   * Queues an insert, waiting if the queue is full.
+   *
+   * @param table Table to insert into.
+   * @param columns Columns to insert.
+   * @param types Data Type of each column.
+   * @param values Values to insert.
+   * @return Future completed once the row has been committed.
+   * @throws IllegalStateException if the buffer is closed.
+   */
+  CompletableFuture<Void> add(String table, String[] columns, ColumnType[] types, Object[] values)
+      throws IllegalStateException {
+    Insert insert = new Insert(table, columns.clone(), types, values.clone(), true);
+    enqueue(insert);
+    return insert.done;
+  }
+
+  /**
+   * Queues an insert without a future, waiting if the queue is full. If it fails, the error is
+   * thrown from a later call to this or {@link #flush()}.
+   *
+   * @param table Table to insert into.
+   * @param columns Columns to insert.
+   * @param types Data Type of each column.
+   * @param values Values to insert.
+   * @throws IllegalStateException if the buffer is closed.
+   * @throws RuntimeException if an earlier insert queued with this method failed.
+   */
+  void post(String table, String[] columns, ColumnType[] types, Object[] values)
+      throws IllegalStateException {
+    throwFailure();
+    enqueue(new Insert(table, columns.clone(), types, values.clone(), false));
+  }
+
+  /**
+   * Waits until every insert queued so far has been written.
+   *
+   * @throws IllegalStateException if the buffer is closed.
+   * @throws RuntimeException if an insert queued with {@link #post} failed.
+   */
+  void flush() throws IllegalStateException {
+    Insert marker = new Insert(null, null, null, null, true);
+    enqueue(marker);
+    marker.done.join();
+    throwFailure();
+  }
+
+  /**
+   * Writes everything still queued, then stops the writer thread. A failure of an insert queued
+   * with {@link #post} that was never thrown is printed instead.
+   */
+  void close() {
+    // Waits for inserts already blocked on a full queue to get on it.
+    closing.writeLock().lock();
+    try {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    } finally {
+      closing.writeLock().unlock();
+    }
+    // Wakes the writer up if it is waiting on an empty queue.
+    try {
+      queue.put(new Insert(null, null, null, null, true));
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    Throwable failed = failure.getAndSet(null);
+    if (failed != null) {
+      failed.printStackTrace();
+    }
+
+    // Only left behind if closing was interrupted.
+    for (Insert insert = queue.poll(); insert != null; insert = queue.poll()) {
+      insert.done.completeExceptionally(
+          new IllegalStateException("Write-behind buffer is closed!"));
+    }
+  }
+
+  /**
+   * Throws the first failure of an insert queued with {@link #post}, if there is one, and clears
+   * it.
+   *
+   * @throws RuntimeException the failure, wrapped if it is checked.
+   */
+  private void throwFailure() throws RuntimeException {
+    Throwable failed = failure.getAndSet(null);
+    if (failed instanceof RuntimeException) {
+      throw (RuntimeException) failed;
+    } else if (failed != null) {
+      throw new RuntimeException(failed);
+    }
+  }
+
+  /**
+   * Fails an insert, keeping the error if nobody waits on its future.
+   *
+   * @param insert Insert that failed.
+   * @param e Error it failed with.
+   */
+  private void fail(Insert insert, Throwable e) {
+    if (!insert.watched) {
+      failure.compareAndSet(null, e);
+    }
+    insert.done.completeExceptionally(e);
+  }
+
+  /**
+   * Puts an insert on the queue.
+   *
+   * @param insert Insert to queue.
+   * @throws IllegalStateException if the buffer is closed.
+   */
+  private void enqueue(Insert insert) throws IllegalStateException {
+    closing.readLock().lock();
+    try {
+      if (closed) {
+        throw new IllegalStateException("Write-behind buffer is closed!");
+      }
+      queue.put(insert);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException(e);
+    } finally {
+      closing.readLock().unlock();
+    }
+  }
+
+  /** Writer thread. Takes groups off the queue until the buffer is closed and empty. */
+  private void run() {
+    List<Insert> group = new ArrayList<>(maxRows);
+    List<Insert> markers = new ArrayList<>();
+    while (!closed || !queue.isEmpty()) {
+      try {
+        collect(queue.take(), group, markers);
+        long deadline = System.nanoTime() + maxDelayNanos;
+        while (group.size() < maxRows && markers.isEmpty()) {
+          Insert next = queue.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+          if (next == null) {
+            break;
+          }
+          collect(next, group, markers);
+        }
+      } catch (InterruptedException e) {
+        // Nothing interrupts the writer on purpose, so write whatever was collected.
+      }
+
+      writeGroup(group);
+      group.clear();
+      for (Insert marker : markers) {
+        marker.done.complete(null);
+      }
+      markers.clear();
+    }
+  }
+
+  /**
+   * Adds an insert to the group being built, or to the markers to complete after it.
+   *
+   * @param insert Insert taken from the queue.
+   * @param group Group being built.
+   * @param markers Flush markers reached so far.
+   */
+  private static void collect(Insert insert, List<Insert> group, List<Insert> markers) {
+    if (insert.isMarker()) {
+      markers.add(insert);
+    } else {
+      group.add(insert);
+    }
+  }
+
+  /**
+   * Writes a group in one transaction. If that fails, each insert is written on its own instead,
+   * so one bad row doesn't fail the rest of its group.
+   *
+   * @param group Inserts to write.
+   */
+  private void writeGroup(List<Insert> group) {
+    if (group.isEmpty()) {
+      return;
+    }
+    try {
+      writer.write(group);
+      for (Insert insert : group) {
+        insert.done.complete(null);
+      }
+      return;
+    } catch (SQLException | RuntimeException e) {
+      if (group.size() == 1) {
+        fail(group.get(0), e);
+        return;
+      }
+    }
+
+    for (Insert insert : group) {
+      try {
+        writer.write(List.of(insert));
+        insert.done.complete(null);
+      } catch (SQLException | RuntimeException e) {
+        fail(insert, e);
+      }
+    }
+  }
+}
@@ -0,0 +1,99 @@
+package com.erliapp.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SnowflakeServerTest {
+
+  private static final long EPOCH = 1420070400000L;
+
+  @TempDir
+  Path dir;
+
+  private final Snowflake snowflake = new Snowflake(7, EPOCH);
+  private SnowflakeServer server;
+
+  @AfterEach
+  void close() {
+    if (server != null) {
+      server.close();
+    }
+  }
+
+  @Test
+  void clientsShareTheServersSnowflake() throws Exception {
+    server = SnowflakeServer.loopback(snowflake, 0);
+    Set<Long> seen = new HashSet<>();
+    try (SnowflakeClient first = new SnowflakeClient(server.getAddress(), 100);
+        SnowflakeClient second = new SnowflakeClient(server.getAddress(), 100)) {
+      long lastFirst = 0;
+      long lastSecond = 0;
+      // Enough ids for each client to go through several ranges.
+      for (int i = 0; i < 1000; i++) {
+        long a = first.nextId();
+        long b = second.nextId();
+        assertTrue(a > lastFirst);
+        assertTrue(b > lastSecond);
+        assertTrue(seen.add(a), "Duplicate id " + a);
+        assertTrue(seen.add(b), "Duplicate id " + b);
+        lastFirst = a;
+        lastSecond = b;
+      }
+    }
+    for (long id : seen) {
+      assertEquals(7, snowflake.parse(id)[1]);
+    }
+  }
+
+  @Test
+  void clientWorksOverAUnixSocket() throws Exception {
+    server = SnowflakeServer.unixSocket(snowflake, dir.resolve("snowflake.sock"));
+    try (SnowflakeClient client = new SnowflakeClient(server.getAddress(), 10)) {
+      long last = 0;
+      for (int i = 0; i < 25; i++) {
+        long id = client.nextId();
+        assertTrue(id > last);
+        last = id;
+      }
+    }
+  }
+
+  @Test
+  void nextRangeIsFetchedBeforeTheCurrentOneRunsOut() throws Exception {
+    server = SnowflakeServer.loopback(snowflake, 0);
+    try (SnowflakeClient client = new SnowflakeClient(server.getAddress(), 10, 5)) {
+      // Five ids left in the first range starts the fetch of the second.
+      for (int i = 0; i < 6; i++) {
+        client.nextId();
+      }
+      Thread.sleep(200);
+      server.close();
+      server = null;
+
+      // The rest of the first range, and all of the prefetched one, need no server.
+      for (int i = 0; i < 14; i++) {
+        client.nextId();
+      }
+      assertThrows(RuntimeException.class, client::nextId);
+    }
+  }
+
+  @Test
+  void invalidRangeSizesAreRejected() throws Exception {
+    server = SnowflakeServer.loopback(snowflake, 0);
+    assertThrows(IllegalArgumentException.class,
+        () -> new SnowflakeClient(server.getAddress(), 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new SnowflakeClient(server.getAddress(), SnowflakeServer.MAX_RANGE + 1));
+    assertThrows(IllegalArgumentException.class,
+        () -> new SnowflakeClient(server.getAddress(), 10, 10));
+  }
+}
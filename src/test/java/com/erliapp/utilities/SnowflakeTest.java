@@ -0,0 +1,137 @@
+package com.erliapp.utilities;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Test;
+
+class SnowflakeTest {
+
+  private static final long EPOCH = 1420070400000L;
+  private static final long NOW = EPOCH + 1_000_000L;
+
+  @Test
+  void nextIdIsUniqueAndIncreasingAcrossThreads() throws Exception {
+    Snowflake snowflake = new Snowflake(1, EPOCH);
+    int threads = 8;
+    int perThread = 50_000;
+    CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<long[]>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(executor.submit(() -> {
+          start.await();
+          long[] ids = new long[perThread];
+          for (int i = 0; i < perThread; i++) {
+            ids[i] = snowflake.nextId();
+          }
+          return ids;
+        }));
+      }
+      start.countDown();
+
+      Set<Long> seen = new HashSet<>();
+      for (Future<long[]> result : results) {
+        long[] ids = result.get();
+        for (int i = 0; i < ids.length; i++) {
+          // Each thread must see its own ids in increasing order.
+          if (i > 0) {
+            assertTrue(ids[i] > ids[i - 1]);
+          }
+          assertTrue(seen.add(ids[i]), "Duplicate id " + ids[i]);
+        }
+      }
+      assertEquals(threads * perThread, seen.size());
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  void fillRollsOverToTheNextMillisecond() {
+    // With the clock stopped, running out of sequence can only move on by borrowing from the
+    // following milliseconds, which the drift tolerance allows.
+    Snowflake snowflake = new Snowflake(1, EPOCH, () -> NOW, 5);
+    long[] ids = snowflake.nextIds(10_000);
+
+    for (int i = 1; i < ids.length; i++) {
+      assertTrue(ids[i] > ids[i - 1]);
+    }
+    assertArrayEquals(new long[] {NOW, 1, 0}, snowflake.parse(ids[0]));
+    assertArrayEquals(new long[] {NOW, 1, 4095}, snowflake.parse(ids[4095]));
+    assertArrayEquals(new long[] {NOW + 1, 1, 0}, snowflake.parse(ids[4096]));
+    assertArrayEquals(new long[] {NOW + 2, 1, 1807}, snowflake.parse(ids[9999]));
+  }
+
+  @Test
+  void fillWaitsForTheClockWithoutDriftTolerance() {
+    Snowflake snowflake = new Snowflake(1, EPOCH);
+    long[] ids = new long[10_000];
+    snowflake.fill(ids, 0, ids.length);
+
+    for (int i = 1; i < ids.length; i++) {
+      assertTrue(ids[i] > ids[i - 1]);
+    }
+    // 10000 ids need at least three milliseconds of sequence.
+    assertTrue(snowflake.parse(ids[9999])[0] - snowflake.parse(ids[0])[0] >= 2);
+  }
+
+  @Test
+  void fillAndNextIdShareTheSequence() {
+    AtomicLong now = new AtomicLong(NOW);
+    Snowflake snowflake = new Snowflake(1, EPOCH, now::get, 0);
+    long first = snowflake.nextId();
+    long[] ids = snowflake.nextIds(3);
+    long last = snowflake.nextId();
+
+    assertEquals(first + 1, ids[0]);
+    assertEquals(ids[2] + 1, last);
+  }
+
+  @Test
+  void clockMovingBackwardsPastToleranceFails() {
+    AtomicLong now = new AtomicLong(NOW);
+    Snowflake snowflake = new Snowflake(1, EPOCH, now::get, 5);
+    snowflake.nextId();
+
+    now.set(NOW - 3);
+    snowflake.nextId();
+    now.set(NOW - 10);
+    assertThrows(IllegalStateException.class, snowflake::nextId);
+  }
+
+  @Test
+  void epochOutsideTheLayoutIsRejected() {
+    // In the future, and too long ago for 10 timestamp bits.
+    assertThrows(IllegalArgumentException.class,
+        () -> new Snowflake(1, NOW + 1000, () -> NOW, 0));
+    assertThrows(IllegalArgumentException.class,
+        () -> new Snowflake(new SnowflakeLayout(10, 10, 43), 1, EPOCH, () -> NOW, 0));
+  }
+
+  @Test
+  void timestampOutsideTheLayoutFails() {
+    SnowflakeLayout layout = new SnowflakeLayout(20, 10, 33);
+    long last = EPOCH + (1L << 20) - 1;
+    AtomicLong now = new AtomicLong(last);
+    Snowflake snowflake = new Snowflake(layout, 1, EPOCH, now::get, 0);
+    assertEquals(last, snowflake.parse(snowflake.nextId())[0]);
+
+    now.set(last + 1);
+    assertThrows(IllegalStateException.class, snowflake::nextId);
+    now.set(EPOCH - 1);
+    assertThrows(IllegalStateException.class, snowflake::nextId);
+  }
+}
@@ -0,0 +1,137 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CachingDatabaseTest {
+
+  private static final String[] NAME = {"name"};
+
+  @TempDir
+  Path dir;
+
+  private Database sqlite;
+  private CachingDatabase cache;
+
+  @BeforeEach
+  void open() throws Exception {
+    DatabaseBuilder builder = new DatabaseBuilder();
+    builder.setType("sqlite");
+    builder.setSqlitePath(dir);
+    builder.setKeyspace("cache");
+    builder.addDatabaseValue("items", "name", "text");
+    builder.addDatabaseValue("others", "name", "text");
+    sqlite = builder.build();
+    sqlite.insert("items", NAME, "first");
+    sqlite.insert("others", NAME, "other");
+  }
+
+  @AfterEach
+  void close() {
+    if (cache != null) {
+      cache.close();
+    } else {
+      sqlite.close();
+    }
+  }
+
+  private void newCache(Database database, PropertiesEx prop) {
+    cache = new CachingDatabase(database, List.of("items", "others"), prop);
+  }
+
+  @Test
+  void repeatedSelectIsServedFromTheCache() {
+    newCache(sqlite, new PropertiesEx());
+    cache.select(NAME, "items", "").addRow(new HashMap<>());
+
+    // The first result was changed by the caller, which must not reach the cached copy.
+    assertEquals(1, cache.select(NAME, "items", "").size());
+    assertEquals(1, cache.getCacheStats().getHits());
+    assertEquals(1, cache.getCacheStats().getMisses());
+  }
+
+  @Test
+  void insertOnlyInvalidatesItsTable() {
+    newCache(sqlite, new PropertiesEx());
+    cache.select(NAME, "items", "");
+    cache.select(NAME, "items", "name = 'first'");
+    cache.select(NAME, "others", "");
+
+    cache.insert("items", NAME, "second");
+    assertEquals(1, cache.getCacheStats().getEntries());
+    assertEquals(2, cache.getCacheStats().getInvalidations());
+    assertEquals(2, cache.select(NAME, "items", "").size());
+  }
+
+  @Test
+  void updateNamingNoTableClearsTheCache() {
+    newCache(sqlite, new PropertiesEx());
+    cache.select(NAME, "items", "");
+    cache.select(NAME, "others", "");
+
+    cache.update("PRAGMA optimize");
+    assertEquals(0, cache.getCacheStats().getEntries());
+  }
+
+  @Test
+  void evictedEntriesAreNotInvalidatedAgain() {
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("cacheMaxEntries", "2");
+    newCache(sqlite, prop);
+    for (int i = 0; i < 3; i++) {
+      cache.select(NAME, "items", "name = 'row" + i + "'");
+    }
+    assertEquals(1, cache.getCacheStats().getEvictions());
+
+    cache.invalidate("ITEMS");
+    assertEquals(0, cache.getCacheStats().getEntries());
+    assertEquals(2, cache.getCacheStats().getInvalidations());
+  }
+
+  @Test
+  void resultLoadedBeforeAWriteIsNotCached() throws Exception {
+    // Holds back the result of the first select, after it has read the table.
+    CountDownLatch loaded = new CountDownLatch(1);
+    CountDownLatch resume = new CountDownLatch(1);
+    AtomicBoolean hold = new AtomicBoolean(true);
+    Database slow = (Database) Proxy.newProxyInstance(
+        Database.class.getClassLoader(), new Class<?>[] {Database.class},
+        (proxy, method, args) -> {
+          Object result;
+          try {
+            result = method.invoke(sqlite, args);
+          } catch (InvocationTargetException e) {
+            throw e.getCause();
+          }
+          if (method.getName().equals("select") && hold.getAndSet(false)) {
+            loaded.countDown();
+            resume.await();
+          }
+          return result;
+        });
+    newCache(slow, new PropertiesEx());
+
+    CompletableFuture<DatabaseSelection> stale =
+        CompletableFuture.supplyAsync(() -> cache.select(NAME, "items", ""));
+    loaded.await();
+    cache.insert("items", NAME, "second");
+    resume.countDown();
+
+    assertEquals(1, stale.get().size());
+    assertEquals(2, cache.select(NAME, "items", "").size());
+    assertEquals(2, cache.getCacheStats().getMisses());
+  }
+}
@@ -0,0 +1,136 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ColumnarSelectionTest {
+
+  private static final String[] COLUMNS = {"id", "score", "key", "name"};
+  private static final ColumnType[] TYPES =
+      {ColumnType.BIGINT, ColumnType.DOUBLE, ColumnType.UUID, ColumnType.TEXT};
+  private static final UUID KEY = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+
+  @TempDir
+  Path dir;
+
+  /**
+   * Adds a row whose values are all set on even rows, and all null on odd ones.
+   *
+   * @param out Selection to add to.
+   */
+  private static void addRow(ColumnarSelection out) {
+    int row = out.addRow();
+    if (row % 2 == 0) {
+      out.setLong(0, row);
+      out.setDouble(1, row / 2.0);
+      out.setUuid(2, KEY);
+      out.setString(3, "row" + row);
+    } else {
+      out.setNull(0);
+      out.setNull(1);
+      out.setUuid(2, null);
+      out.setString(3, null);
+    }
+  }
+
+  private static void assertRow(ColumnarSelection selection, int row, int expected) {
+    if (expected % 2 == 0) {
+      for (int column = 0; column < COLUMNS.length; column++) {
+        assertFalse(selection.isNull(row, column));
+      }
+      assertEquals(expected, selection.getLong(row, "id"));
+      assertEquals(expected / 2.0, selection.getDouble(row, "score"));
+      assertEquals(KEY, selection.getUuid(row, "key"));
+      assertEquals("row" + expected, selection.getString(row, "name"));
+      assertEquals(Long.toString(expected), selection.getString(row, "id"));
+    } else {
+      for (int column = 0; column < COLUMNS.length; column++) {
+        assertTrue(selection.isNull(row, column));
+        assertNull(selection.getString(row, column));
+      }
+      assertNull(selection.getUuid(row, "key"));
+      assertEquals(0, selection.getLong(row, "id"));
+    }
+  }
+
+  @Test
+  void nullsAreKeptPerValueAcrossGrowth() {
+    ColumnarSelection selection = new ColumnarSelection(COLUMNS, TYPES);
+    // More rows than the starting capacity of 16.
+    for (int i = 0; i < 40; i++) {
+      addRow(selection);
+    }
+
+    assertEquals(40, selection.size());
+    for (int row = 0; row < 40; row++) {
+      assertRow(selection, row, row);
+    }
+  }
+
+  @Test
+  void addAllShiftsTheNullsOfTheAddedRows() {
+    ColumnarSelection first = new ColumnarSelection(COLUMNS, TYPES);
+    ColumnarSelection second = new ColumnarSelection(COLUMNS, TYPES);
+    for (int i = 0; i < 3; i++) {
+      addRow(first);
+    }
+    for (int i = 0; i < 20; i++) {
+      addRow(second);
+    }
+    first.addAll(second);
+
+    assertEquals(23, first.size());
+    for (int row = 0; row < 3; row++) {
+      assertRow(first, row, row);
+    }
+    for (int row = 0; row < 20; row++) {
+      assertRow(first, 3 + row, row);
+    }
+  }
+
+  @Test
+  void sqliteNullsAreReadAsNulls() throws Exception {
+    DatabaseBuilder builder = new DatabaseBuilder();
+    builder.setType("sqlite");
+    builder.setSqlitePath(dir);
+    builder.setKeyspace("columns");
+    for (int i = 0; i < COLUMNS.length; i++) {
+      builder.addDatabaseValue("items", COLUMNS[i], TYPES[i].name().toLowerCase());
+    }
+    Database database = builder.build();
+    try {
+      database.insert("items", COLUMNS, 0L, 0.0, KEY, "row0");
+      database.insert("items", COLUMNS, null, null, null, null);
+      database.insert("items", COLUMNS, 2L, 1.0, KEY, "row2");
+
+      // The null row sorts last.
+      ColumnarSelection selection =
+          database.selectColumnar(COLUMNS, "items", "1 = 1 ORDER BY name IS NULL, name");
+      assertEquals(3, selection.size());
+      assertRow(selection, 0, 0);
+      assertRow(selection, 1, 2);
+      assertRow(selection, 2, 1);
+    } finally {
+      database.close();
+    }
+  }
+
+  @Test
+  void wrongTypeAndMissingRowsAreRejected() {
+    ColumnarSelection selection = new ColumnarSelection(COLUMNS, TYPES);
+    addRow(selection);
+
+    assertThrows(IllegalStateException.class, () -> selection.getDouble(0, "id"));
+    assertThrows(IllegalStateException.class, () -> selection.setString(0, "text"));
+    assertThrows(IndexOutOfBoundsException.class, () -> selection.isNull(1, 0));
+    assertThrows(IllegalArgumentException.class, () -> selection.getColumnIndex("missing"));
+  }
+}
@@ -0,0 +1,95 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Path;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ConditionTest {
+
+  @TempDir
+  Path dir;
+
+  @Test
+  void shapeOnlyDependsOnTheTerms() {
+    Condition first = Condition.eq("id", 1L).and(Condition.range("ts", 10L, 20L)).limit(5);
+    Condition second = Condition.eq("id", 2L).and(Condition.range("ts", 30L, 40L)).limit(9);
+
+    assertEquals("id = ? AND ts >= ? AND ts <= ? LIMIT ?", first.getShape());
+    assertEquals(first.getShape(), second.getShape());
+    assertArrayEquals(new String[] {"id", "ts", "ts"}, first.getColumns());
+    assertArrayEquals(new Object[] {1L, 10L, 20L}, first.getValues());
+    assertEquals(5, first.getLimit());
+  }
+
+  @Test
+  void inListHasAPlaceholderPerValue() {
+    Condition condition = Condition.in("id", 1L, 2L, 3L);
+    assertEquals("id IN (?, ?, ?)", condition.getShape());
+    assertArrayEquals(new String[] {"id", "id", "id"}, condition.getColumns());
+    assertThrows(IllegalArgumentException.class, () -> Condition.in("id"));
+  }
+
+  @Test
+  void combinedConditionsKeepTheSmallerLimit() {
+    assertEquals(3, Condition.eq("a", 1).limit(3).and(Condition.eq("b", 2).limit(7)).getLimit());
+    assertEquals(7, Condition.eq("a", 1).and(Condition.eq("b", 2).limit(7)).getLimit());
+    assertEquals(-1, Condition.allOf(Condition.eq("a", 1), Condition.eq("b", 2)).getLimit());
+    assertEquals("LIMIT ?", Condition.all().limit(1).getShape());
+  }
+
+  @Test
+  void equalsIsFoundPastOtherPlaceholders() {
+    Condition condition = Condition.in("a", 1, 2).and(Condition.range("b", 3, 4))
+        .and(Condition.eq("ID", 5));
+    assertEquals(5, condition.getEquals("id"));
+    assertNull(condition.getEquals("a"));
+    assertNull(condition.getEquals("b"));
+  }
+
+  @Test
+  void toWhereQuotesTextAndWritesTheLimit() {
+    Condition condition = Condition.eq("name", "O'Brien").and(Condition.eq("id", 7L)).limit(2);
+    assertEquals("name = 'O''Brien' AND id = 7 LIMIT 2", condition.toWhere());
+  }
+
+  @Test
+  void columnNamesAndNullValuesAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> Condition.eq("id; DROP TABLE t", 1));
+    assertThrows(IllegalArgumentException.class, () -> Condition.eq("id", null));
+    assertThrows(IllegalArgumentException.class, () -> Condition.eq("id", 1).limit(0));
+  }
+
+  @Test
+  void valuesAreBoundWhenSelecting() throws Exception {
+    DatabaseBuilder builder = new DatabaseBuilder();
+    builder.setType("sqlite");
+    builder.setSqlitePath(dir);
+    builder.setKeyspace("people");
+    builder.addDatabaseValue("people", "id", "bigint");
+    builder.addDatabaseValue("people", "name", "text");
+    Database database = builder.build();
+    try {
+      String[] columns = {"id", "name"};
+      for (long id = 1; id <= 5; id++) {
+        database.insert("people", columns, id, id == 3 ? "O'Brien" : "person" + id);
+      }
+
+      DatabaseSelection quoted =
+          database.select(columns, "people", Condition.eq("name", "O'Brien"));
+      assertEquals(1, quoted.size());
+      assertEquals(3, quoted.getValue(0, "id").getLong());
+
+      DatabaseSelection range =
+          database.select(columns, "people", Condition.range("id", 2L, 5L).limit(2));
+      assertEquals(2, range.size());
+      assertEquals(5, database.select(columns, "people", Condition.all()).size());
+    } finally {
+      database.close();
+    }
+  }
+}
@@ -0,0 +1,112 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.sql.DriverManager;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class ConnectionPoolTest {
+
+  private final AtomicInteger opened = new AtomicInteger();
+  private ConnectionPool pool;
+
+  private void newPool(PropertiesEx prop) {
+    pool = new ConnectionPool(() -> {
+      opened.incrementAndGet();
+      return DriverManager.getConnection("jdbc:sqlite::memory:");
+    }, prop);
+  }
+
+  @AfterEach
+  void close() {
+    if (pool != null) {
+      pool.close();
+    }
+  }
+
+  @Test
+  void borrowTimesOutWhenPoolIsFull() throws Exception {
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("poolMaxSize", "1");
+    prop.setProperty("poolBorrowTimeout", "100");
+    newPool(prop);
+
+    ConnectionPool.PooledConnection held = pool.borrow();
+    long start = System.nanoTime();
+    assertThrows(SQLTimeoutException.class, pool::borrow);
+    assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+
+    // The failed borrow must not have taken the slot.
+    pool.release(held, false);
+    pool.release(pool.borrow(), false);
+    assertEquals(1, opened.get());
+  }
+
+  @Test
+  void waitingBorrowGetsReleasedConnection() throws Exception {
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("poolMaxSize", "1");
+    prop.setProperty("poolBorrowTimeout", "5000");
+    newPool(prop);
+
+    ConnectionPool.PooledConnection held = pool.borrow();
+    CompletableFuture<ConnectionPool.PooledConnection> waiting =
+        CompletableFuture.supplyAsync(() -> {
+          try {
+            return pool.borrow();
+          } catch (Exception e) {
+            throw new RuntimeException(e);
+          }
+        });
+    Thread.sleep(50);
+    pool.release(held, false);
+
+    assertSame(held, waiting.get(5, TimeUnit.SECONDS));
+    pool.release(held, false);
+  }
+
+  @Test
+  void releasedConnectionIsReused() throws Exception {
+    newPool(new PropertiesEx());
+
+    ConnectionPool.PooledConnection first = pool.borrow();
+    pool.release(first, false);
+    ConnectionPool.PooledConnection second = pool.borrow();
+    pool.release(second, false);
+
+    assertSame(first, second);
+    assertEquals(1, opened.get());
+  }
+
+  @Test
+  void idleConnectionsAreEvictedOnBorrow() throws Exception {
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("poolMinSize", "1");
+    prop.setProperty("poolIdleTimeout", "50");
+    newPool(prop);
+
+    List<ConnectionPool.PooledConnection> held = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      held.add(pool.borrow());
+    }
+    for (ConnectionPool.PooledConnection pooled : held) {
+      pool.release(pooled, false);
+    }
+    assertEquals(4, pool.getStats().getIdle());
+
+    Thread.sleep(100);
+    pool.release(pool.borrow(), false);
+    assertEquals(1, pool.getStats().getIdle());
+  }
+}
@@ -0,0 +1,126 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.erliapp.utilities.Snowflake;
+import com.erliapp.utilities.SnowflakeLayout;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class NodeIdRegistryTest {
+
+  private static final long EPOCH = 1420070400000L;
+
+  // Only four Node IDs, so the table fills up quickly.
+  private static final SnowflakeLayout LAYOUT = new SnowflakeLayout(51, 2, 10);
+
+  @TempDir
+  Path dir;
+
+  private Database database;
+  private final List<NodeIdRegistry> registries = new ArrayList<>();
+
+  @BeforeEach
+  void open() throws Exception {
+    DatabaseBuilder builder = new DatabaseBuilder();
+    builder.setType("sqlite");
+    builder.setSqlitePath(dir);
+    builder.setKeyspace("nodes");
+    NodeIdRegistry.addTable(builder);
+    database = builder.build();
+  }
+
+  @AfterEach
+  void close() {
+    for (NodeIdRegistry registry : registries) {
+      registry.close();
+    }
+    database.close();
+  }
+
+  private NodeIdRegistry newRegistry(long leaseMillis) {
+    NodeIdRegistry registry = new NodeIdRegistry(database, LAYOUT, leaseMillis);
+    registries.add(registry);
+    return registry;
+  }
+
+  private static void waitUntilLost(NodeIdRegistry registry) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (registry.isHeld()) {
+      assertTrue(System.currentTimeMillis() < deadline, "Lease was never lost");
+      Thread.sleep(5);
+    }
+  }
+
+  @Test
+  void registriesLeaseDifferentNodeIds() {
+    Set<Long> ids = new HashSet<>();
+    for (int i = 0; i < 4; i++) {
+      NodeIdRegistry registry = newRegistry(60000);
+      assertTrue(ids.add(registry.acquire()));
+      assertEquals(registry.getNodeId(), registry.acquire());
+    }
+    assertThrows(IllegalStateException.class, () -> newRegistry(60000).acquire());
+  }
+
+  @Test
+  void closedLeaseIsTakenOver() {
+    List<NodeIdRegistry> full = new ArrayList<>();
+    for (int i = 0; i < 4; i++) {
+      NodeIdRegistry registry = newRegistry(60000);
+      registry.acquire();
+      full.add(registry);
+    }
+
+    long freed = full.get(2).getNodeId();
+    full.get(2).close();
+    NodeIdRegistry next = newRegistry(60000);
+    assertEquals(freed, next.acquire());
+    assertThrows(IllegalStateException.class, full.get(2)::acquire);
+  }
+
+  @Test
+  void leaseIsRenewedInTheBackground() throws Exception {
+    NodeIdRegistry registry = newRegistry(300);
+    Snowflake snowflake = registry.newSnowflake(EPOCH);
+    Thread.sleep(1000);
+
+    assertTrue(registry.isHeld());
+    assertEquals(registry.getNodeId(), snowflake.parse(snowflake.nextId())[1]);
+  }
+
+  @Test
+  void leaseTakenByAnotherOwnerFencesTheSnowflake() throws Exception {
+    NodeIdRegistry registry = newRegistry(300);
+    Snowflake snowflake = registry.newSnowflake(EPOCH);
+    snowflake.nextId();
+
+    // Another node took the lease over, so the next renewal must not apply.
+    database.update("UPDATE " + NodeIdRegistry.TABLE + " SET owner = 'other'"
+        + " WHERE node_id = " + registry.getNodeId());
+    waitUntilLost(registry);
+
+    assertThrows(IllegalStateException.class, snowflake::nextId);
+    assertThrows(IllegalStateException.class, () -> snowflake.nextIds(10));
+  }
+
+  @Test
+  void closingEndsTheLease() {
+    NodeIdRegistry registry = newRegistry(60000);
+    Snowflake snowflake = registry.newSnowflake(EPOCH);
+    registry.close();
+
+    assertFalse(registry.isHeld());
+    assertThrows(IllegalStateException.class, snowflake::nextId);
+  }
+}
@@ -0,0 +1,151 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import com.erliapp.utilities.PropertiesEx;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests replica routing over separate SQLite files. SQLite doesn't replicate, so each file holds a
+ * row with its own name, and the name a select returns tells which database answered it.
+ */
+class ReplicatedDatabaseTest {
+
+  private static final String[] NAME = {"name"};
+
+  @TempDir
+  Path dir;
+
+  private ReplicatedDatabase replicated;
+
+  private Database newSqlite(String name) throws Exception {
+    DatabaseBuilder builder = new DatabaseBuilder();
+    builder.setType("sqlite");
+    builder.setSqlitePath(Files.createDirectory(dir.resolve(name)));
+    builder.setKeyspace("items");
+    builder.addDatabaseValue("items", "name", "text");
+    ReplicatedDatabase.addHeartbeatTable(builder);
+    Database database = builder.build();
+    database.insert("items", NAME, name);
+    return database;
+  }
+
+  private void newReplicated(List<Database> replicas, PropertiesEx prop) throws Exception {
+    replicated = new ReplicatedDatabase(newSqlite("primary"), replicas, prop);
+  }
+
+  /**
+   * Runs a select through the replicated database.
+   *
+   * @return Name of the database that answered it.
+   */
+  private String answeredBy() {
+    return replicated.select(NAME, "items", "").getValue(0, "name").getString();
+  }
+
+  private void waitForReplicasInRotation(int count) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (replicated.getReplicasInRotation() != count) {
+      assertTrue(System.currentTimeMillis() < deadline, "Replicas never left rotation");
+      Thread.sleep(10);
+    }
+  }
+
+  @AfterEach
+  void close() {
+    if (replicated != null) {
+      replicated.close();
+    }
+  }
+
+  @Test
+  void selectsGoToTheLeastBusyReplica() throws Exception {
+    newReplicated(List.of(newSqlite("r1"), newSqlite("r2")), new PropertiesEx());
+
+    // An open stream counts as a running select until it is closed.
+    try (Stream<Map<String, Row<?>>> held = replicated.selectStream(NAME, "items", "")) {
+      String busy = held.iterator().next().get("name").getString();
+      for (int i = 0; i < 10; i++) {
+        assertNotEquals(busy, answeredBy());
+      }
+    }
+
+    // Once both are idle, they share the selects.
+    Set<String> seen = new HashSet<>();
+    for (int i = 0; i < 10; i++) {
+      seen.add(answeredBy());
+    }
+    assertEquals(Set.of("r1", "r2"), seen);
+  }
+
+  @Test
+  void unreachableReplicaIsTakenOutOfRotation() throws Exception {
+    // Its directory doesn't exist, so every connection fails to open.
+    PropertiesEx brokenProp = new PropertiesEx();
+    brokenProp.setProperty("cqlkeyspace", "items");
+    LinkedHashMap<String, LinkedHashMap<String, String>> setup = new LinkedHashMap<>();
+    setup.put("items", new LinkedHashMap<>(Map.of("name", "text")));
+    Database broken = new SqliteDatabase(setup, brokenProp, dir.resolve("missing"));
+
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("replicaCheckInterval", "60000");
+    newReplicated(List.of(broken, newSqlite("r1")), prop);
+
+    for (int i = 0; i < 10; i++) {
+      assertEquals("r1", answeredBy());
+    }
+    assertEquals(1, replicated.getReplicasInRotation());
+  }
+
+  @Test
+  void laggingReplicaIsTakenOutOfRotation() throws Exception {
+    Database fresh = newSqlite("r1");
+    Database stale = newSqlite("r2");
+    // A heartbeat far in the future is never behind, and a missing one always is.
+    fresh.insert(ReplicatedDatabase.HEARTBEAT_TABLE, new String[] {"id", "ts"}, 0L,
+        Long.MAX_VALUE / 2);
+
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("replicaMaxLag", "50");
+    prop.setProperty("replicaCheckInterval", "10");
+    newReplicated(List.of(fresh, stale), prop);
+
+    waitForReplicasInRotation(1);
+    for (int i = 0; i < 10; i++) {
+      assertEquals("r1", answeredBy());
+    }
+
+    fresh.update("UPDATE " + ReplicatedDatabase.HEARTBEAT_TABLE + " SET ts = 0 WHERE id = 0");
+    waitForReplicasInRotation(0);
+    assertEquals("primary", answeredBy());
+  }
+
+  @Test
+  void writerReadsItsOwnWritesFromThePrimary() throws Exception {
+    PropertiesEx prop = new PropertiesEx();
+    prop.setProperty("replicaReadYourWrites", "60000");
+    newReplicated(List.of(newSqlite("r1")), prop);
+    assertEquals("r1", answeredBy());
+
+    replicated.insert("items", NAME, "written");
+    assertEquals(1, replicated.select(NAME, "items", "name = 'written'").size());
+
+    // Other threads haven't written, so they still read from the replica.
+    int elsewhere = CompletableFuture.supplyAsync(
+        () -> replicated.select(NAME, "items", "name = 'written'").size()).get();
+    assertEquals(0, elsewhere);
+  }
+}
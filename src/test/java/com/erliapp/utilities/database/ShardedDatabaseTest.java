@@ -0,0 +1,141 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class ShardedDatabaseTest {
+
+  private static final String[] COLUMNS = {"id", "name"};
+
+  @TempDir
+  Path dir;
+
+  private ShardedDatabase sharded;
+
+  private static DatabaseBuilder newBuilder(Path path) {
+    DatabaseBuilder builder = new DatabaseBuilder();
+    builder.setType("sqlite");
+    builder.setSqlitePath(path);
+    builder.setKeyspace("events");
+    builder.addDatabaseValue("events", "id", "bigint");
+    builder.addDatabaseValue("events", "name", "text");
+    builder.setShardKey("events", "id");
+    return builder;
+  }
+
+  @BeforeEach
+  void open() throws Exception {
+    List<Database> shards = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      shards.add(newBuilder(Files.createDirectory(dir.resolve("shard" + i))).build());
+    }
+    sharded = newBuilder(dir).buildSharded(shards);
+  }
+
+  @AfterEach
+  void close() {
+    sharded.close();
+  }
+
+  private long requests() {
+    return sharded.getShardStats().stream().mapToLong(ShardStats::getRequests).sum();
+  }
+
+  /**
+   * Finds an id owned by a different shard than another id.
+   *
+   * @param other Id to avoid the shard of.
+   * @return Id on another shard.
+   */
+  private long idOnAnotherShard(long other) {
+    long id = other + 1;
+    while (sharded.shardOf(id) == sharded.shardOf(other)) {
+      id++;
+    }
+    return id;
+  }
+
+  @Test
+  void rowsAreInsertedIntoTheShardOwningTheirKey() {
+    for (long id = 0; id < 100; id++) {
+      sharded.insert("events", COLUMNS, id, "event" + id);
+    }
+
+    int total = 0;
+    for (int i = 0; i < sharded.getShardCount(); i++) {
+      DatabaseSelection rows = sharded.getShards().get(i).select(COLUMNS, "events", "");
+      for (int row = 0; row < rows.size(); row++) {
+        assertEquals(i, sharded.shardOf(rows.getValue(row, "id").getLong()));
+      }
+      total += rows.size();
+    }
+    assertEquals(100, total);
+  }
+
+  @Test
+  void keyComparisonRunsOnOneShard() {
+    sharded.insert("events", COLUMNS, 5L, "five");
+
+    long before = requests();
+    assertEquals(1, sharded.select(COLUMNS, "events", "id = 5").size());
+    assertEquals(1, sharded.select(COLUMNS, "events", Condition.eq("id", 5L)).size());
+    assertEquals(before + 2, requests());
+  }
+
+  @Test
+  void keyWrittenDifferentlyFindsTheSameShard() {
+    sharded.insert("events", COLUMNS, 5L, "five");
+
+    long before = requests();
+    assertEquals(1, sharded.select(COLUMNS, "events", "id = 05").size());
+    assertEquals(1, sharded.select(COLUMNS, "events", "id = '5'").size());
+    assertEquals(1, sharded.select(COLUMNS, "events", "id = 5.0").size());
+    assertEquals(1, sharded.select(COLUMNS, "events", Condition.eq("id", 5)).size());
+    assertEquals(before + 4, requests());
+  }
+
+  @Test
+  void keyInsideStringLiteralIsIgnored() {
+    long id = idOnAnotherShard(3);
+    sharded.insert("events", COLUMNS, id, "id = 3");
+
+    DatabaseSelection rows =
+        sharded.select(COLUMNS, "events", "name = 'id = 3' AND id = " + id);
+    assertEquals(1, rows.size());
+    assertNotEquals(sharded.shardOf(3L), sharded.shardOf(id));
+  }
+
+  @Test
+  void ambiguousWhereRunsOnEveryShard() {
+    long other = idOnAnotherShard(5);
+    sharded.insert("events", COLUMNS, 5L, "five");
+    sharded.insert("events", COLUMNS, other, "other");
+
+    long before = requests();
+    assertEquals(2, sharded.select(COLUMNS, "events", "id = 5 OR id = " + other).size());
+    assertEquals(1, sharded.select(COLUMNS, "events", "id = 4 + 1").size());
+    assertEquals(before + 2L * sharded.getShardCount(), requests());
+  }
+
+  @Test
+  void selectRangeMergesShardsInIdOrder() {
+    for (long id = 1; id <= 50; id++) {
+      sharded.insert("events", COLUMNS, id, "event" + id);
+    }
+
+    DatabaseSelection page = sharded.selectRange(COLUMNS, "events", "id", 10, 40, 5);
+    assertEquals(5, page.size());
+    for (int row = 0; row < page.size(); row++) {
+      assertEquals(10 + row, page.getValue(row, "id").getLong());
+    }
+  }
+}
@@ -0,0 +1,181 @@
+package com.erliapp.utilities.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class WriteBehindBufferTest {
+
+  private static final String[] COLUMNS = {"name"};
+  private static final ColumnType[] TYPES = {ColumnType.TEXT};
+
+  private final List<Object> written = Collections.synchronizedList(new ArrayList<>());
+  private final List<Integer> groups = Collections.synchronizedList(new ArrayList<>());
+  private WriteBehindBuffer buffer;
+
+  /**
+   * Creates a buffer whose writer records every row, and fails any group holding a row named
+   * {@code bad}.
+   *
+   * @param maxRows Maximum number of rows per group.
+   * @param maxDelayMillis Maximum time the first row of a group waits before it is written.
+   */
+  private void newBuffer(int maxRows, long maxDelayMillis) {
+    buffer = new WriteBehindBuffer(group -> {
+      for (WriteBehindBuffer.Insert insert : group) {
+        if ("bad".equals(insert.values[0])) {
+          throw new SQLException("bad row");
+        }
+      }
+      groups.add(group.size());
+      for (WriteBehindBuffer.Insert insert : group) {
+        written.add(insert.values[0]);
+      }
+    }, 10000, maxRows, maxDelayMillis);
+  }
+
+  private static Object[] row(String name) {
+    return new Object[] {name};
+  }
+
+  @AfterEach
+  void close() {
+    if (buffer != null) {
+      buffer.close();
+    }
+  }
+
+  @Test
+  void flushWaitsForQueuedInserts() {
+    // The delay is long enough that only the flush can get the rows written in time.
+    newBuffer(1000, 60000);
+    for (int i = 0; i < 10; i++) {
+      buffer.post("t", COLUMNS, TYPES, row("row" + i));
+    }
+    buffer.flush();
+    assertEquals(10, written.size());
+  }
+
+  @Test
+  void groupsAreCappedAtMaxRows() {
+    newBuffer(50, 60000);
+    for (int i = 0; i < 1000; i++) {
+      buffer.post("t", COLUMNS, TYPES, row("row" + i));
+    }
+    buffer.flush();
+    assertEquals(1000, written.size());
+    for (int size : groups) {
+      assertTrue(size <= 50);
+    }
+  }
+
+  @Test
+  void rowsAreWrittenAfterTheDelayWithoutFlushing() throws Exception {
+    newBuffer(1000, 10);
+    buffer.add("t", COLUMNS, TYPES, row("row")).get();
+    assertEquals(List.of("row"), written);
+  }
+
+  @Test
+  void closeWritesQueuedInsertsAndRejectsNewOnes() {
+    newBuffer(1000, 60000);
+    for (int i = 0; i < 5; i++) {
+      buffer.post("t", COLUMNS, TYPES, row("row" + i));
+    }
+    buffer.close();
+    assertEquals(5, written.size());
+    assertThrows(IllegalStateException.class, () -> buffer.post("t", COLUMNS, TYPES, row("row")));
+    assertThrows(IllegalStateException.class, buffer::flush);
+  }
+
+  @Test
+  void closeWritesInsertsBlockedOnAFullQueue() throws Exception {
+    buffer = new WriteBehindBuffer(group -> {
+      try {
+        Thread.sleep(5);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      for (WriteBehindBuffer.Insert insert : group) {
+        written.add(insert.values[0]);
+      }
+    }, 1, 1, 0);
+    List<CompletableFuture<CompletableFuture<Void>>> producers = new ArrayList<>();
+    for (int i = 0; i < 8; i++) {
+      String name = "row" + i;
+      producers.add(CompletableFuture.supplyAsync(
+          () -> buffer.add("t", COLUMNS, TYPES, row(name))));
+    }
+    Thread.sleep(10);
+    buffer.close();
+
+    // Every insert either got on the queue and was written, or was turned away by add.
+    int accepted = 0;
+    for (CompletableFuture<CompletableFuture<Void>> producer : producers) {
+      CompletableFuture<Void> done;
+      try {
+        done = producer.get(5, TimeUnit.SECONDS);
+      } catch (ExecutionException e) {
+        assertTrue(e.getCause() instanceof IllegalStateException);
+        continue;
+      }
+      done.get(5, TimeUnit.SECONDS);
+      accepted++;
+    }
+    assertEquals(accepted, written.size());
+  }
+
+  @Test
+  void badRowDoesNotFailTheRestOfItsGroup() {
+    newBuffer(1000, 60000);
+    CompletableFuture<Void> good = buffer.add("t", COLUMNS, TYPES, row("good"));
+    CompletableFuture<Void> bad = buffer.add("t", COLUMNS, TYPES, row("bad"));
+    buffer.flush();
+
+    assertFalse(good.isCompletedExceptionally());
+    assertTrue(bad.isCompletedExceptionally());
+    assertEquals(List.of("good"), written);
+  }
+
+  @Test
+  void failedPostIsThrownFromNextFlush() {
+    newBuffer(1000, 60000);
+    buffer.post("t", COLUMNS, TYPES, row("bad"));
+    buffer.post("t", COLUMNS, TYPES, row("good"));
+
+    RuntimeException e = assertThrows(RuntimeException.class, buffer::flush);
+    assertTrue(e.getCause() instanceof SQLException);
+    assertEquals(List.of("good"), written);
+
+    // The failure is only thrown once.
+    buffer.flush();
+  }
+
+  @Test
+  void failedPostIsThrownFromNextPost() throws Exception {
+    newBuffer(1000, 0);
+    buffer.post("t", COLUMNS, TYPES, row("bad"));
+    buffer.add("t", COLUMNS, TYPES, row("good")).get();
+
+    assertThrows(RuntimeException.class, () -> buffer.post("t", COLUMNS, TYPES, row("next")));
+  }
+
+  @Test
+  void failedAddIsOnlyReportedThroughItsFuture() {
+    newBuffer(1000, 60000);
+    CompletableFuture<Void> bad = buffer.add("t", COLUMNS, TYPES, row("bad"));
+    buffer.flush();
+    assertTrue(bad.isCompletedExceptionally());
+  }
+}